@@ -72,6 +72,11 @@ export interface TextTokenItem {
 export interface SearchRequest {
   searchQuery: SearchQuery;
   range: [number, number];
+  includes?: string[];
+  excludes?: string[];
+  cursor?: string;
+  timeout?: number;
+  facets?: SearchFacetName[];
 }
 
 export type SearchQuery = SearchToken[];
@@ -80,4 +85,15 @@ export type SearchResult<E> = {
   result: GenericResultItem<E>[];
   total: number;
   last: boolean;
+  cursor?: string | null;
+  partial: boolean;
+  timedOut?: boolean;
+  facets?: Partial<Record<SearchFacetName, SearchFacetBucket[]>>;
+};
+
+export type SearchFacetName = "datasourceId" | "type";
+
+export type SearchFacetBucket = {
+  value: string;
+  count: number;
 };
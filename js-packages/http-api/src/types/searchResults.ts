@@ -23,7 +23,7 @@ export type GenericResultItem<E = {}> = {
     contentId: string;
     id: string;
     parsingDate: number; // timestamp
-    rawContent: string;
+    rawContent?: string;
     tenantId: number;
     datasourceId: number;
     entities?: {
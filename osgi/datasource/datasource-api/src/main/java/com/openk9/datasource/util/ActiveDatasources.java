@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.datasource.util;
+
+import com.openk9.datasource.model.Datasource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+public class ActiveDatasources {
+
+	private ActiveDatasources(long tenantId, List<Datasource> datasources) {
+
+		datasources.sort(
+			(d1, d2) -> Long.compare(
+				d1.getDatasourceId(), d2.getDatasourceId()));
+
+		long[] datasourceIds = new long[datasources.size()];
+
+		TreeSet<String> driverServiceNames = new TreeSet<>();
+
+		for (int i = 0; i < datasources.size(); i++) {
+
+			Datasource datasource = datasources.get(i);
+
+			datasourceIds[i] = datasource.getDatasourceId();
+
+			driverServiceNames.add(datasource.getDriverServiceName());
+
+		}
+
+		_tenantId = tenantId;
+		_datasources = Collections.unmodifiableList(datasources);
+		_datasourceIds = datasourceIds;
+		_driverServiceNames = driverServiceNames.toArray(String[]::new);
+
+	}
+
+	public static ActiveDatasources of(
+		long tenantId, Collection<Datasource> datasources) {
+
+		List<Datasource> activeDatasources = new ArrayList<>(
+			datasources.size());
+
+		for (Datasource datasource : datasources) {
+			if (Boolean.TRUE.equals(datasource.getActive()) &&
+				Objects.equals(datasource.getTenantId(), tenantId)) {
+
+				activeDatasources.add(datasource);
+			}
+		}
+
+		return new ActiveDatasources(tenantId, activeDatasources);
+
+	}
+
+	public ActiveDatasources put(Datasource datasource) {
+
+		List<Datasource> datasources = new ArrayList<>(_datasources);
+
+		datasources.removeIf(
+			d -> d.getDatasourceId().equals(datasource.getDatasourceId()));
+
+		datasources.add(datasource);
+
+		return of(_tenantId, datasources);
+
+	}
+
+	public ActiveDatasources remove(Long datasourceId) {
+
+		if (Arrays.binarySearch(_datasourceIds, datasourceId) < 0) {
+			return this;
+		}
+
+		List<Datasource> datasources = new ArrayList<>(_datasources);
+
+		datasources.removeIf(d -> d.getDatasourceId().equals(datasourceId));
+
+		return new ActiveDatasources(_tenantId, datasources);
+
+	}
+
+	public long getTenantId() {
+		return _tenantId;
+	}
+
+	public List<Datasource> getDatasources() {
+		return _datasources;
+	}
+
+	public long[] getDatasourceIds() {
+		return _datasourceIds;
+	}
+
+	public String[] getDriverServiceNames() {
+		return _driverServiceNames;
+	}
+
+	public boolean isEmpty() {
+		return _datasources.isEmpty();
+	}
+
+	private final long _tenantId;
+	private final List<Datasource> _datasources;
+	private final long[] _datasourceIds;
+	private final String[] _driverServiceNames;
+
+}
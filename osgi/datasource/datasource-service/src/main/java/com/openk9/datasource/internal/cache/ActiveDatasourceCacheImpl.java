@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.datasource.internal.cache;
+
+import com.openk9.datasource.cache.ActiveDatasourceCache;
+import com.openk9.datasource.model.Datasource;
+import com.openk9.datasource.repository.DatasourceRepository;
+import com.openk9.datasource.util.ActiveDatasources;
+import com.openk9.sql.api.event.EntityEvent;
+import com.openk9.sql.api.event.EntityEventBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component(
+	immediate = true,
+	service = ActiveDatasourceCache.class
+)
+public class ActiveDatasourceCacheImpl implements ActiveDatasourceCache {
+
+	@Activate
+	public void activate() {
+
+		_hitCounter = Metrics.counter(_METRIC_NAME, "result", "hit");
+		_missCounter = Metrics.counter(_METRIC_NAME, "result", "miss");
+
+		Metrics.gaugeMapSize(
+			_METRIC_NAME + ".size", Tags.empty(), _activeDatasourceMap);
+
+		_disposable = _entityEventBus
+			.stream()
+			.filter(e -> e.getEntityClass() == Datasource.class)
+			.subscribe(this::_onDatasourceEvent);
+
+	}
+
+	@Deactivate
+	public void deactivate() {
+		_disposable.dispose();
+		_generation.incrementAndGet();
+		_activeDatasourceMap.clear();
+	}
+
+	@Override
+	public Mono<ActiveDatasources> getActiveDatasources(long tenantId) {
+
+		ActiveDatasources activeDatasources =
+			_activeDatasourceMap.get(tenantId);
+
+		if (activeDatasources != null) {
+			_hitCounter.increment();
+			return Mono.just(activeDatasources);
+		}
+
+		_missCounter.increment();
+
+		long generation = _generation.get();
+
+		return _datasourceRepository
+			.findByTenantIdAndIsActive(tenantId)
+			.collectList()
+			.map(datasources -> ActiveDatasources.of(tenantId, datasources))
+			.doOnNext(newActiveDatasources -> {
+				if (_generation.get() == generation) {
+					_activeDatasourceMap.putIfAbsent(
+						tenantId, newActiveDatasources);
+				}
+			});
+
+	}
+
+	private void _onDatasourceEvent(EntityEvent<?> entityEvent) {
+
+		Datasource datasource = (Datasource)entityEvent.getValue();
+
+		_generation.incrementAndGet();
+
+		for (Long tenantId : _activeDatasourceMap.keySet()) {
+
+			if (entityEvent instanceof EntityEvent.DeleteEvent ||
+				!tenantId.equals(datasource.getTenantId())) {
+
+				_activeDatasourceMap.computeIfPresent(
+					tenantId,
+					(key, activeDatasources) ->
+						activeDatasources.remove(
+							datasource.getDatasourceId()));
+			}
+			else {
+				_activeDatasourceMap.computeIfPresent(
+					tenantId,
+					(key, activeDatasources) ->
+						activeDatasources.put(datasource));
+			}
+
+		}
+
+	}
+
+	private Counter _hitCounter;
+
+	private Counter _missCounter;
+
+	private Disposable _disposable;
+
+	private final AtomicLong _generation = new AtomicLong();
+
+	private final Map<Long, ActiveDatasources> _activeDatasourceMap =
+		new ConcurrentHashMap<>();
+
+	@Reference
+	private DatasourceRepository _datasourceRepository;
+
+	@Reference
+	private EntityEventBus _entityEventBus;
+
+	private static final String _METRIC_NAME =
+		"openk9.active.datasource.cache";
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.datasource.internal.cache;
+
+import com.openk9.datasource.model.Tenant;
+import com.openk9.sql.api.event.EntityEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+public class TenantCache {
+
+	public TenantCache(Function<String, Mono<Tenant>> loader) {
+		_loader = loader;
+		_hitCounter = Metrics.counter(_METRIC_NAME, "result", "hit");
+		_missCounter = Metrics.counter(_METRIC_NAME, "result", "miss");
+		Metrics.gaugeMapSize(
+			_METRIC_NAME + ".size", Tags.empty(), _tenantMap);
+	}
+
+	public Mono<Tenant> findByVirtualHost(String virtualHost) {
+
+		Tenant tenant = _tenantMap.get(virtualHost);
+
+		if (tenant != null) {
+			_hitCounter.increment();
+			return Mono.just(tenant);
+		}
+
+		_missCounter.increment();
+
+		long generation = _generation.get();
+
+		return _loader
+			.apply(virtualHost)
+			.doOnNext(newTenant -> {
+				if (_generation.get() == generation) {
+					_tenantMap.put(virtualHost, newTenant);
+				}
+			});
+
+	}
+
+	public void invalidate(EntityEvent<?> entityEvent) {
+
+		Tenant tenant = (Tenant)entityEvent.getValue();
+
+		_generation.incrementAndGet();
+
+		_tenantMap
+			.values()
+			.removeIf(t -> t.getTenantId().equals(tenant.getTenantId()));
+
+		if (tenant.getVirtualHost() != null) {
+			_tenantMap.remove(tenant.getVirtualHost());
+		}
+
+	}
+
+	public void clear() {
+		_generation.incrementAndGet();
+		_tenantMap.clear();
+	}
+
+	private final Function<String, Mono<Tenant>> _loader;
+
+	private final Counter _hitCounter;
+
+	private final Counter _missCounter;
+
+	private final AtomicLong _generation = new AtomicLong();
+
+	private final Map<String, Tenant> _tenantMap = new ConcurrentHashMap<>();
+
+	private static final String _METRIC_NAME = "openk9.tenant.cache";
+
+}
@@ -18,6 +18,7 @@
 package com.openk9.datasource.internal.repository;
 
 
+import com.openk9.datasource.internal.cache.TenantCache;
 import com.openk9.datasource.model.Datasource;
 import com.openk9.datasource.model.Tenant;
 import com.openk9.datasource.repository.TenantRepository;
@@ -30,9 +31,12 @@ import com.openk9.sql.api.entity.ReactiveRepository;
 import com.openk9.sql.api.event.EntityEventBus;
 import io.r2dbc.spi.Row;
 import io.r2dbc.spi.RowMetadata;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferencePolicyOption;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
 
 import java.util.function.BiFunction;
@@ -48,6 +52,26 @@ public class TenantRepositoryImpl
 	extends BaseReactiveRepository<Tenant, Long>
 	implements TenantRepository, RepositoryHttpExtender {
 
+	@Activate
+	public void activate() {
+
+		_tenantCache = new TenantCache(
+			virtualHost -> super.findOneBy(
+				Criteria.where("virtualHost").is(virtualHost)));
+
+		_disposable = _entityEventBus
+			.stream()
+			.filter(e -> e.getEntityClass() == Tenant.class)
+			.subscribe(_tenantCache::invalidate);
+
+	}
+
+	@Deactivate
+	public void deactivate() {
+		_disposable.dispose();
+		_tenantCache.clear();
+	}
+
 	@Override
 	public ReactiveRepository getReactiveRepository() {
 		return this;
@@ -57,7 +81,7 @@ public class TenantRepositoryImpl
 		return super.delete(tenantId);
 	}
 	public Mono<Tenant> findByVirtualHost(String virtualHost) {
-		return super.findOneBy(Criteria.where("virtualHost").is(virtualHost));
+		return _tenantCache.findByVirtualHost(virtualHost);
 	}
 	public Mono<Tenant> addTenant(Tenant tenant) {
         return super.insert(tenant);
@@ -152,6 +176,10 @@ public class TenantRepositoryImpl
 		_entityEventBus = entityEventBus;
 	}
 
+	private TenantCache _tenantCache;
+
+	private Disposable _disposable;
+
 	public static final String TABLE_NAME = "TENANT";
 
 }
@@ -25,4 +25,6 @@ public interface DocumentTypeProvider {
 
 	List<DocumentType> getDocumentTypeList(String pluginDriverName);
 
+	long getVersion();
+
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.ingestion.driver.manager.api;
+
+import lombok.Data;
+
+@Data
+public class Highlight {
+
+	private Highlight(
+		HighlightType highlightType, int fragmentSize,
+		int numberOfFragments) {
+
+		this.highlightType = highlightType;
+		this.fragmentSize = fragmentSize;
+		this.numberOfFragments = numberOfFragments;
+	}
+
+	public static Highlight of(HighlightType highlightType) {
+		return new Highlight(
+			highlightType, DEFAULT_FRAGMENT_SIZE, DEFAULT_NUMBER_OF_FRAGMENTS);
+	}
+
+	public static Highlight of(
+		HighlightType highlightType, int fragmentSize,
+		int numberOfFragments) {
+
+		return new Highlight(highlightType, fragmentSize, numberOfFragments);
+	}
+
+	private final HighlightType highlightType;
+	private final int fragmentSize;
+	private final int numberOfFragments;
+
+	public static final int DEFAULT_FRAGMENT_SIZE = 100;
+
+	public static final int DEFAULT_NUMBER_OF_FRAGMENTS = 5;
+
+	public static final Highlight DEFAULT = of(HighlightType.UNIFIED);
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.ingestion.driver.manager.api;
+
+import java.util.Map;
+
+public enum HighlightType {
+
+	UNIFIED("unified", Map.of("index_options", "offsets")),
+	FVH("fvh", Map.of("term_vector", "with_positions_offsets")),
+	PLAIN("plain", Map.of());
+
+	HighlightType(String type, Map<String, Object> mappingOptions) {
+		_type = type;
+		_mappingOptions = mappingOptions;
+	}
+
+	public String getType() {
+		return _type;
+	}
+
+	public Map<String, Object> getMappingOptions() {
+		return _mappingOptions;
+	}
+
+	private final String _type;
+	private final Map<String, Object> _mappingOptions;
+
+}
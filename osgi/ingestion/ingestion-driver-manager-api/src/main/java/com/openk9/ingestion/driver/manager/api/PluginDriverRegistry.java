@@ -28,4 +28,6 @@ public interface PluginDriverRegistry {
 
 	Collection<PluginDriver> getPluginDriverList(Iterable<String> names);
 
+	long getVersion();
+
 }
@@ -28,8 +28,13 @@ import java.util.function.BiFunction;
 @EqualsAndHashCode
 public abstract class SearchKeyword {
 
-	protected SearchKeyword(String keyword, String prefix, boolean text) {
+	protected SearchKeyword(
+		String keyword, String prefix, boolean text, boolean suggest,
+		Highlight highlight) {
+
 		this.text = text;
+		this.suggest = suggest;
+		this.highlight = highlight == null ? Highlight.DEFAULT : highlight;
 		if (prefix == null || prefix.isEmpty()) {
 			this.keyword = keyword;
 		}
@@ -38,8 +43,26 @@ public abstract class SearchKeyword {
 		}
 	}
 
+	protected SearchKeyword(
+		String keyword, boolean text, boolean suggest, Highlight highlight) {
+		this(keyword, Strings.BLANK, text, suggest, highlight);
+	}
+
+	protected SearchKeyword(
+		String keyword, String prefix, boolean text, boolean suggest) {
+		this(keyword, prefix, text, suggest, Highlight.DEFAULT);
+	}
+
+	protected SearchKeyword(String keyword, boolean text, boolean suggest) {
+		this(keyword, Strings.BLANK, text, suggest, Highlight.DEFAULT);
+	}
+
+	protected SearchKeyword(String keyword, String prefix, boolean text) {
+		this(keyword, prefix, text, false, Highlight.DEFAULT);
+	}
+
 	protected SearchKeyword(String keyword, boolean text) {
-		this(keyword, Strings.BLANK, text);
+		this(keyword, Strings.BLANK, text, false, Highlight.DEFAULT);
 	}
 
 	public String getKeyword() {
@@ -50,6 +73,14 @@ public abstract class SearchKeyword {
 		return text;
 	}
 
+	public boolean isSuggest() {
+		return suggest;
+	}
+
+	public Highlight getHighlight() {
+		return highlight;
+	}
+
 	public Map.Entry<String, Float> getFieldBoost() {
 		return Map.entry(getKeyword(), 1.0f);
 	}
@@ -64,51 +95,95 @@ public abstract class SearchKeyword {
 	}
 
 	public static SearchKeyword boostText(String keyword, float boost) {
-		return new BoostSearchKeyword(keyword, boost, true);
+		return new BoostSearchKeyword(keyword, boost, true, false, null);
+	}
+
+	public static SearchKeyword boostText(
+		String keyword, float boost, Highlight highlight) {
+
+		return new BoostSearchKeyword(keyword, boost, true, false, highlight);
 	}
 
 	public static SearchKeyword boostNumber(String keyword, float boost) {
-		return new BoostSearchKeyword(keyword, boost, false);
+		return new BoostSearchKeyword(keyword, boost, false, false, null);
 	}
 
 	public static SearchKeyword boostNumber(
 		String keyword, String prefix, float boost) {
 
-		return new BoostSearchKeyword(keyword, prefix, boost, false);
+		return new BoostSearchKeyword(
+			keyword, prefix, boost, false, false, null);
 	}
 
 	public static SearchKeyword boostText(
 		String keyword, String prefix, float boost) {
 
-		return new BoostSearchKeyword(keyword, prefix, boost, true);
+		return new BoostSearchKeyword(
+			keyword, prefix, boost, true, false, null);
+	}
+
+	public static SearchKeyword boostSuggest(String keyword, float boost) {
+		return new BoostSearchKeyword(keyword, boost, true, true, null);
+	}
+
+	public static SearchKeyword boostSuggest(
+		String keyword, float boost, Highlight highlight) {
+
+		return new BoostSearchKeyword(keyword, boost, true, true, highlight);
+	}
+
+	public static SearchKeyword boostSuggest(
+		String keyword, String prefix, float boost) {
+
+		return new BoostSearchKeyword(
+			keyword, prefix, boost, true, true, null);
 	}
 
 	public static SearchKeyword number(String keyword) {
-		return new BaseSearchKeyword(keyword, false);
+		return new BaseSearchKeyword(keyword, false, false, null);
 	}
 
 	public static SearchKeyword text(String keyword) {
-		return new BaseSearchKeyword(keyword, true);
+		return new BaseSearchKeyword(keyword, true, false, null);
+	}
+
+	public static SearchKeyword text(String keyword, Highlight highlight) {
+		return new BaseSearchKeyword(keyword, true, false, highlight);
 	}
 
 	public static SearchKeyword text(String keyword, String prefix) {
-		return new BaseSearchKeyword(keyword, prefix, true);
+		return new BaseSearchKeyword(keyword, prefix, true, false, null);
 	}
 
 	public static SearchKeyword number(String keyword, String prefix) {
-		return new BaseSearchKeyword(keyword, prefix, false);
+		return new BaseSearchKeyword(keyword, prefix, false, false, null);
+	}
+
+	public static SearchKeyword suggest(String keyword) {
+		return new BaseSearchKeyword(keyword, true, true, null);
+	}
+
+	public static SearchKeyword suggest(String keyword, Highlight highlight) {
+		return new BaseSearchKeyword(keyword, true, true, highlight);
+	}
+
+	public static SearchKeyword suggest(String keyword, String prefix) {
+		return new BaseSearchKeyword(keyword, prefix, true, true, null);
 	}
 
 	static class BoostSearchKeyword extends SearchKeyword {
 
 		public BoostSearchKeyword(
-			String keyword, String prefix, float boost, boolean text) {
-			super(keyword, prefix, text);
+			String keyword, String prefix, float boost, boolean text,
+			boolean suggest, Highlight highlight) {
+			super(keyword, prefix, text, suggest, highlight);
 			this.boost = boost;
 		}
 
-		public BoostSearchKeyword(String keyword, float boost, boolean text) {
-			super(keyword, text);
+		public BoostSearchKeyword(
+			String keyword, float boost, boolean text, boolean suggest,
+			Highlight highlight) {
+			super(keyword, text, suggest, highlight);
 			this.boost = boost;
 		}
 
@@ -135,17 +210,23 @@ public abstract class SearchKeyword {
 
 	static class BaseSearchKeyword extends SearchKeyword {
 
-		public BaseSearchKeyword(String keyword, String prefix, boolean text) {
-			super(keyword, prefix, text);
+		public BaseSearchKeyword(
+			String keyword, String prefix, boolean text, boolean suggest,
+			Highlight highlight) {
+			super(keyword, prefix, text, suggest, highlight);
 		}
 
-		public BaseSearchKeyword(String keyword, boolean text) {
-			super(keyword, text);
+		public BaseSearchKeyword(
+			String keyword, boolean text, boolean suggest,
+			Highlight highlight) {
+			super(keyword, text, suggest, highlight);
 		}
 
 	}
 
 	private final String keyword;
 	private final boolean text;
+	private final boolean suggest;
+	private final Highlight highlight;
 
 }
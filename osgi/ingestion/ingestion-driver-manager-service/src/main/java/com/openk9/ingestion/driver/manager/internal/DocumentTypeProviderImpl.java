@@ -35,6 +35,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component(
 	immediate = true,
@@ -54,6 +55,11 @@ public class  DocumentTypeProviderImpl implements DocumentTypeProvider {
 				pluginDriverName, Collections.emptyList()));
 	}
 
+	@Override
+	public long getVersion() {
+		return _version.get();
+	}
+
 	@Reference(
 		service = DocumentTypeFactory.class,
 		bind = "addDocumentTypeFactory",
@@ -135,6 +141,8 @@ public class  DocumentTypeProviderImpl implements DocumentTypeProvider {
 			_actionMap.put(documentTypeFactory, newAction);
 		}
 
+		_version.incrementAndGet();
+
 	}
 
 	public void removeDocumentTypeFactory(
@@ -144,6 +152,7 @@ public class  DocumentTypeProviderImpl implements DocumentTypeProvider {
 
 		if (action != null) {
 			action.exec();
+			_version.incrementAndGet();
 		}
 
 	}
@@ -157,6 +166,8 @@ public class  DocumentTypeProviderImpl implements DocumentTypeProvider {
 	private final Map<DocumentTypeFactory, Action> _actionMap =
 		Collections.synchronizedMap(new IdentityHashMap<>());
 
+	private final AtomicLong _version = new AtomicLong();
+
 	interface Action {
 		void exec();
 	}
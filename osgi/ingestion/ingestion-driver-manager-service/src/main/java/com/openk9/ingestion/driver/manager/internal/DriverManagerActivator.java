@@ -22,6 +22,7 @@ import com.openk9.ingestion.driver.manager.api.PluginDriverRegistry;
 import com.openk9.datasource.model.Datasource;
 import com.openk9.datasource.repository.DatasourceRepository;
 import com.openk9.osgi.util.AutoCloseables;
+import com.openk9.search.client.api.BulkLoadMode;
 import com.openk9.sql.api.event.EntityEvent;
 import com.openk9.sql.api.event.EntityEventBus;
 import org.apache.karaf.scheduler.Job;
@@ -37,6 +38,7 @@ import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.Date;
 import java.util.Map;
 import java.util.Optional;
@@ -175,13 +177,14 @@ public class DriverManagerActivator {
 					_datasourceRepository
 						.findByPrimaryKey(datasourceId)
 						.flatMap(newDatasource ->
-							Mono.from(
-								pluginDriver
-									.get()
-									.invokeDataParser(
-										newDatasource,
-										Date.from(newDatasource.getLastIngestionDate()),
-										new Date())))
+							_enterBulkLoadMode(newDatasource, pluginDriver.get())
+								.then(Mono.from(
+									pluginDriver
+										.get()
+										.invokeDataParser(
+											newDatasource,
+											Date.from(newDatasource.getLastIngestionDate()),
+											new Date()))))
 						.subscribe()
 				);
 			}
@@ -197,6 +200,29 @@ public class DriverManagerActivator {
 		};
 	}
 
+	private Mono<Void> _enterBulkLoadMode(
+		Datasource datasource, PluginDriver pluginDriver) {
+
+		if (!Instant.EPOCH.equals(datasource.getLastIngestionDate())) {
+			return Mono.empty();
+		}
+
+		String indexName =
+			datasource.getTenantId() + "-" + pluginDriver.getName() + "-data";
+
+		return _bulkLoadMode
+			.enterIfEmpty(datasource.getDatasourceId(), indexName)
+			.onErrorResume(throwable -> {
+				if (_log.isWarnEnabled()) {
+					_log.warn(
+						"[SCHEDULER] bulk-load mode not enabled for " +
+						indexName, throwable);
+				}
+				return Mono.empty();
+			});
+
+	}
+
 	private final CopyOnWriteArrayList<Disposable> _disposables =
 		new CopyOnWriteArrayList<>();
 
@@ -214,6 +240,9 @@ public class DriverManagerActivator {
 	@Reference
 	private EntityEventBus _entityEventBus;
 
+	@Reference
+	private BulkLoadMode _bulkLoadMode;
+
 	private static final String _PREFIX =
 		DriverManagerActivator.class.getName() + "-";
 
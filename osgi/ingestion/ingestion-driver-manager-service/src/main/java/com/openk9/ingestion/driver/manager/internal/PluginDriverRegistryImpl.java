@@ -33,6 +33,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component(immediate = true, service = PluginDriverRegistry.class)
 public class PluginDriverRegistryImpl implements PluginDriverRegistry {
@@ -83,6 +84,11 @@ public class PluginDriverRegistryImpl implements PluginDriverRegistry {
 		return new ArrayList<>(_pluginDriverMap.values());
 	}
 
+	@Override
+	public long getVersion() {
+		return _version.get();
+	}
+
 	class PluginDriverServiceTrackerCustomizer implements
 		ServiceTrackerCustomizer<PluginDriver, PluginDriver> {
 
@@ -95,6 +101,8 @@ public class PluginDriverRegistryImpl implements PluginDriverRegistry {
 
 			_pluginDriverMap.put(service.getClass().getName(), service);
 
+			_version.incrementAndGet();
+
 			return service;
 		}
 
@@ -117,6 +125,8 @@ public class PluginDriverRegistryImpl implements PluginDriverRegistry {
 
 			_pluginDriverMap.remove(service.getClass().getName());
 
+			_version.incrementAndGet();
+
 		}
 	}
 
@@ -127,6 +137,7 @@ public class PluginDriverRegistryImpl implements PluginDriverRegistry {
 	private final Map<String, PluginDriver> _pluginDriverMap =
 		new HashMap<>();
 
+	private final AtomicLong _version = new AtomicLong();
 
 
 }
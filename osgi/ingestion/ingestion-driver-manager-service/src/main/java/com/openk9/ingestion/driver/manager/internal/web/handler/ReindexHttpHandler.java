@@ -29,8 +29,10 @@ import com.openk9.http.web.HttpHandler;
 import com.openk9.http.web.HttpRequest;
 import com.openk9.http.web.HttpResponse;
 import com.openk9.json.api.JsonFactory;
+import com.openk9.search.client.api.BulkLoadMode;
 import com.openk9.search.client.api.ReactorActionListener;
 import com.openk9.search.client.api.RestHighLevelClientProvider;
+import com.openk9.search.client.api.TenantIndexGeneration;
 import com.openk9.sql.api.client.Criteria;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
@@ -113,6 +115,19 @@ public class ReindexHttpHandler implements HttpHandler {
 							}
 						})
 						.onErrorReturn(_NOTHING)
+						.doOnNext(acknowledgedResponse ->
+							_tenantIndexGeneration.increment(indexName))
+						.then(
+							_bulkLoadMode
+								.reenter(
+									datasource.getDatasourceId(), indexName)
+								.onErrorResume(throwable -> {
+									if (_log.isWarnEnabled()) {
+										_log.warn(throwable.getMessage());
+									}
+									return Mono.empty();
+								})
+						)
 						.then(
 							Mono
 								.just(datasource)
@@ -181,6 +196,12 @@ public class ReindexHttpHandler implements HttpHandler {
 	@Reference
 	private PluginDriverRegistry _pluginDriverRegistry;
 
+	@Reference
+	private TenantIndexGeneration _tenantIndexGeneration;
+
+	@Reference
+	private BulkLoadMode _bulkLoadMode;
+
 	private static final Logger _log = LoggerFactory.getLogger(
 		ReindexHttpHandler.class.getName());
 
@@ -21,10 +21,13 @@ package com.openk9.ingestion.queue.logic;
 import com.openk9.datasource.repository.DatasourceRepository;
 import com.openk9.ingestion.logic.api.IngestionLogic;
 import com.openk9.model.IngestionPayload;
+import com.openk9.search.client.api.BulkLoadMode;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
@@ -47,6 +50,13 @@ public class UpdateLastIngestionDate {
 			.groupBy(IngestionPayload::getDatasourceId)
 			.flatMap(group -> group
 				.sample(Duration.ofMillis(config.timespan())))
+			.doOnNext(ip -> {
+				BulkLoadMode bulkLoadMode = _bulkLoadMode;
+
+				if (bulkLoadMode != null) {
+					bulkLoadMode.touch(ip.getDatasourceId());
+				}
+			})
 			.flatMap(ip -> _datasourceRepository
 					.updateLastIngestionDate(
 						ip.getDatasourceId(),
@@ -78,6 +88,12 @@ public class UpdateLastIngestionDate {
 	@Reference
 	private IngestionLogic _ingestionLogicReceiver;
 
+	@Reference(
+		cardinality = ReferenceCardinality.OPTIONAL,
+		policy = ReferencePolicy.DYNAMIC
+	)
+	private volatile BulkLoadMode _bulkLoadMode;
+
 	private static final Logger _log =
 		LoggerFactory.getLogger(UpdateLastIngestionDate.class);
 
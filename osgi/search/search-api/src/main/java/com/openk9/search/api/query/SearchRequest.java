@@ -25,4 +25,9 @@ import java.util.List;
 public class SearchRequest {
 	private List<SearchToken> searchQuery;
 	private int[] range;
+	private String[] includes;
+	private String[] excludes;
+	private String cursor;
+	private Long timeout;
+	private String[] facets;
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.api;
+
+import reactor.core.publisher.Mono;
+
+public interface BulkLoadMode {
+
+	Mono<Void> enter(long datasourceId, String indexName);
+
+	Mono<Void> enterIfEmpty(long datasourceId, String indexName);
+
+	/**
+	 * Like {@link #enter(long, String)}, but for an index that was deleted
+	 * and is being recreated: any bulk load recorded for the old index is
+	 * dropped and the settings of the new one are captured.
+	 */
+	Mono<Void> reenter(long datasourceId, String indexName);
+
+	void touch(long datasourceId);
+
+}
@@ -18,6 +18,7 @@
 package com.openk9.search.client.api;
 
 import org.elasticsearch.action.DocWriteRequest;
+import reactor.core.publisher.Mono;
 
 import java.util.function.Function;
 
@@ -27,4 +28,7 @@ public interface IndexBus {
 
 	void sendRequest(
 		Function<DocWriteRequestFactory, DocWriteRequest<?>> requestFunction);
+
+	Mono<Void> offerRequest(DocWriteRequest<?> request);
+
 }
@@ -23,6 +23,9 @@ public interface IndexRequestFactory {
 
 	IndexRequest createDataIndexRequest(long tenantId, String driverName);
 
+	IndexRequest createDataIndexRequest(
+		long tenantId, String driverName, String id);
+
 	IndexRequest createEntityIndexRequest(long tenantId);
 
 }
@@ -19,6 +19,7 @@ package com.openk9.search.client.api;
 
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.script.mustache.SearchTemplateRequest;
 import reactor.core.publisher.Mono;
 
 import java.util.function.Function;
@@ -31,4 +32,11 @@ public interface Search {
 		Function<SearchRequestFactory, SearchRequest>
 			searchRequestBuilderFunction);
 
+	Mono<SearchResponse> searchTemplate(
+		SearchTemplateRequest searchTemplateRequest);
+
+	Mono<SearchResponse> searchTemplate(
+		Function<SearchRequestFactory, SearchTemplateRequest>
+			searchTemplateRequestBuilderFunction);
+
 }
@@ -34,4 +34,23 @@ public class SearchUtil {
 	public static final SearchRequest EMPTY_SEARCH_REQUEST =
 		new SearchRequest();
 
+	public static final String DATA_SEARCH_TEMPLATE_ID =
+		"openk9-data-search";
+
+	public static boolean isSynthetic(SearchResponse searchResponse) {
+		return searchResponse == EMPTY_SEARCH_RESPONSE;
+	}
+
+	public static boolean isPartial(SearchResponse searchResponse) {
+
+		if (isSynthetic(searchResponse)) {
+			return false;
+		}
+
+		return searchResponse.isTimedOut() ||
+			   Boolean.TRUE.equals(searchResponse.isTerminatedEarly()) ||
+			   searchResponse.getFailedShards() > 0;
+
+	}
+
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+class BulkFlowControl {
+
+	BulkFlowControl(
+		int maxConcurrency, long minBulkBytes, long maxBulkBytes,
+		long targetLatencyMs, long maxPendingBytes) {
+
+		_maxConcurrency = Math.max(1, maxConcurrency);
+		_minBulkBytes = Math.max(1, Math.min(minBulkBytes, maxBulkBytes));
+		_maxBulkBytes = Math.max(_minBulkBytes, maxBulkBytes);
+		_targetLatencyMs = targetLatencyMs;
+		_maxPendingBytes = maxPendingBytes;
+		_concurrencyLimit = _maxConcurrency;
+		_bulkBytes = _maxBulkBytes;
+	}
+
+	long getBulkBytes() {
+		return _bulkBytes;
+	}
+
+	synchronized int getConcurrencyLimit() {
+		return _concurrencyLimit;
+	}
+
+	synchronized long getPendingBytes() {
+		return _pendingBytes;
+	}
+
+	synchronized boolean hasPendingCapacity() {
+		return _pendingBytes < _maxPendingBytes;
+	}
+
+	synchronized void addPending(long bytes) {
+		_pendingBytes += bytes;
+	}
+
+	Mono<Void> awaitPending(long bytes) {
+		return Mono.create(sink -> {
+
+			synchronized (this) {
+				if (_pendingBytes < _maxPendingBytes) {
+					_pendingBytes += bytes;
+				}
+				else {
+
+					PendingWaiter pendingWaiter = new PendingWaiter(sink, bytes);
+
+					_pendingWaiters.add(pendingWaiter);
+
+					sink.onCancel(() -> _cancelPending(pendingWaiter));
+
+					return;
+				}
+			}
+
+			sink.success();
+
+		});
+	}
+
+	void removePending(long bytes) {
+
+		Queue<MonoSink<Void>> ready = new ArrayDeque<>();
+
+		synchronized (this) {
+
+			_pendingBytes = Math.max(0, _pendingBytes - bytes);
+
+			while (_pendingBytes < _maxPendingBytes &&
+				   !_pendingWaiters.isEmpty()) {
+
+				PendingWaiter pendingWaiter = _pendingWaiters.poll();
+
+				_pendingBytes += pendingWaiter.bytes;
+
+				ready.add(pendingWaiter.sink);
+
+			}
+
+		}
+
+		ready.forEach(MonoSink::success);
+
+	}
+
+	Mono<Void> acquireBulk() {
+		return Mono.create(sink -> {
+
+			synchronized (this) {
+				if (_inFlight < _concurrencyLimit) {
+					_inFlight++;
+				}
+				else {
+					_bulkWaiters.add(sink);
+					return;
+				}
+			}
+
+			sink.success();
+
+		});
+	}
+
+	void releaseBulk(long latencyMs, boolean failed) {
+
+		Queue<MonoSink<Void>> ready = new ArrayDeque<>();
+
+		synchronized (this) {
+
+			_inFlight--;
+
+			if (failed || latencyMs > _targetLatencyMs) {
+				_concurrencyLimit = Math.max(1, _concurrencyLimit / 2);
+				_bulkBytes = Math.max(_minBulkBytes, _bulkBytes / 2);
+			}
+			else {
+				_concurrencyLimit = Math.min(
+					_maxConcurrency, _concurrencyLimit + 1);
+				_bulkBytes = Math.min(
+					_maxBulkBytes, _bulkBytes + _bulkBytes / 10 + 1);
+			}
+
+			while (_inFlight < _concurrencyLimit && !_bulkWaiters.isEmpty()) {
+				_inFlight++;
+				ready.add(_bulkWaiters.poll());
+			}
+
+		}
+
+		ready.forEach(MonoSink::success);
+
+	}
+
+	private void _cancelPending(PendingWaiter pendingWaiter) {
+
+		boolean waiting;
+
+		synchronized (this) {
+			waiting = _pendingWaiters.remove(pendingWaiter);
+		}
+
+		if (!waiting) {
+			removePending(pendingWaiter.bytes);
+		}
+
+	}
+
+	private static class PendingWaiter {
+
+		private PendingWaiter(MonoSink<Void> sink, long bytes) {
+			this.sink = sink;
+			this.bytes = bytes;
+		}
+
+		private final MonoSink<Void> sink;
+		private final long bytes;
+
+	}
+
+	private final int _maxConcurrency;
+	private final long _minBulkBytes;
+	private final long _maxBulkBytes;
+	private final long _targetLatencyMs;
+	private final long _maxPendingBytes;
+
+	private int _concurrencyLimit;
+	private int _inFlight;
+	private long _pendingBytes;
+	private volatile long _bulkBytes;
+
+	private final Queue<MonoSink<Void>> _bulkWaiters = new ArrayDeque<>();
+	private final Queue<PendingWaiter> _pendingWaiters = new ArrayDeque<>();
+
+}
@@ -20,10 +20,18 @@ package com.openk9.search.client.internal;
 import com.openk9.osgi.util.AutoCloseables;
 import com.openk9.search.client.api.RestHighLevelClientProvider;
 import com.openk9.search.client.internal.configuration.ElasticSearchConfiguration;
+import com.openk9.search.client.internal.node.NodeSelectors;
+import com.openk9.search.client.internal.node.NodeStatsTracker;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.elasticsearch.client.Node;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.annotations.Activate;
@@ -45,17 +53,90 @@ public class ElasticSearchActivator {
 	public void activate(BundleContext bundleContext)
 		throws IOException {
 
+		NodeStatsTracker nodeStatsTracker = new NodeStatsTracker(
+			_elasticSearchConfiguration.connectTimeoutMs() +
+			_elasticSearchConfiguration.socketTimeoutMs(),
+			_elasticSearchConfiguration.nodeLatencyHalfLifeMs());
+
+		SniffOnFailureListener sniffOnFailureListener =
+			new SniffOnFailureListener();
+
+		boolean sniffEnabled = _elasticSearchConfiguration.sniffEnabled();
+
 		RestClientBuilder builder = RestClient.builder(
 			Arrays
 				.stream(_elasticSearchConfiguration.hosts())
 				.map(e -> e.split(":"))
 				.map(e -> new HttpHost(e[0], Integer.parseInt(e[1])))
 				.toArray(HttpHost[]::new)
-		);
+		)
+			.setNodeSelector(
+				NodeSelectors.of(
+					_elasticSearchConfiguration.nodeSelector(),
+					nodeStatsTracker,
+					_elasticSearchConfiguration.nodeLatencyTolerance()))
+			.setFailureListener(new RestClient.FailureListener() {
+				@Override
+				public void onFailure(Node node) {
+					nodeStatsTracker.onFailure(node);
+					if (sniffEnabled) {
+						sniffOnFailureListener.onFailure(node);
+					}
+				}
+			})
+			.setRequestConfigCallback(requestConfigBuilder ->
+				requestConfigBuilder
+					.setConnectTimeout(
+						_elasticSearchConfiguration.connectTimeoutMs())
+					.setSocketTimeout(
+						_elasticSearchConfiguration.socketTimeoutMs()))
+			.setHttpClientConfigCallback(httpClientBuilder -> {
+
+				httpClientBuilder
+					.setMaxConnPerRoute(
+						_elasticSearchConfiguration.maxConnPerRoute())
+					.setMaxConnTotal(
+						_elasticSearchConfiguration.maxConnTotal())
+					.addInterceptorFirst(
+						(HttpRequestInterceptor)nodeStatsTracker)
+					.addInterceptorLast(
+						(HttpResponseInterceptor)nodeStatsTracker);
+
+				int ioThreadCount = _elasticSearchConfiguration.ioThreadCount();
+
+				if (ioThreadCount > 0) {
+					httpClientBuilder.setDefaultIOReactorConfig(
+						IOReactorConfig
+							.custom()
+							.setIoThreadCount(ioThreadCount)
+							.build());
+				}
+
+				return httpClientBuilder;
+
+			});
 
 		RestHighLevelClient restHighLevelClient =
 			new RestHighLevelClient(builder);
 
+		AutoCloseable sniffer = () -> {};
+
+		if (sniffEnabled) {
+
+			Sniffer clusterSniffer = Sniffer
+				.builder(restHighLevelClient.getLowLevelClient())
+				.setSniffIntervalMillis(
+					_elasticSearchConfiguration.sniffIntervalMs())
+				.setSniffAfterFailureDelayMillis(
+					_elasticSearchConfiguration.sniffAfterFailureDelayMs())
+				.build();
+
+			sniffOnFailureListener.setSniffer(clusterSniffer);
+
+			sniffer = clusterSniffer;
+
+		}
+
 		RestHighLevelClientProvider restHighLevelClientProvider =
 			new RestHighLevelClientProviderImpl(restHighLevelClient);
 
@@ -67,7 +148,8 @@ public class ElasticSearchActivator {
 
 		_registrationList.add(
 			AutoCloseables.mergeAutoCloseableToSafe(
-				serviceRegistration::unregister, restHighLevelClient));
+				serviceRegistration::unregister, sniffer, restHighLevelClient,
+				nodeStatsTracker::clear));
 
 	}
 
@@ -19,15 +19,28 @@ package com.openk9.search.client.internal;
 
 import com.openk9.json.api.JsonFactory;
 import com.openk9.osgi.util.AutoCloseables;
-import com.openk9.search.client.api.BulkReactorActionListener;
+import com.openk9.search.client.api.ReactorActionListener;
 import com.openk9.search.client.api.RestHighLevelClientProvider;
+import com.openk9.search.client.api.TenantIndexGeneration;
 import com.openk9.search.client.internal.configuration.ElasticSearchConfiguration;
+import com.openk9.search.client.internal.deadletter.DeadLetterStore;
+import com.openk9.search.client.internal.wal.WriteAheadLog;
+import io.micrometer.core.instrument.Metrics;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -37,13 +50,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component(immediate = true, service = ElasticSearchIndexer.class)
 public class ElasticSearchIndexer {
@@ -53,15 +74,48 @@ public class ElasticSearchIndexer {
 
 		_dataMany = Sinks.many().unicast().onBackpressureBuffer();
 
+		_bulkFlowControl = new BulkFlowControl(
+			_elasticSearchConfiguration.bulkMaxConcurrency(),
+			_elasticSearchConfiguration.bulkMinBytes(),
+			_elasticSearchConfiguration.bulkMaxBytes(),
+			_elasticSearchConfiguration.bulkTargetLatencyMs(),
+			_elasticSearchConfiguration.maxPendingBytes());
+
+		_bulkContentType = _toBulkContentType(
+			_elasticSearchConfiguration.bulkContentType());
+
+		_retryBudget = new RetryBudget(
+			_elasticSearchConfiguration.bulkRetryBudgetRatio(),
+			_elasticSearchConfiguration.bulkRetryBudgetMaxTokens());
+
 		AutoCloseable dataManyAutoClosable =
 			_registerIndexer(
-				_dataMany, _elasticSearchConfiguration.bufferMaxSize(),
+				_dataMany, _bulkFlowControl,
+				_elasticSearchConfiguration.bufferMaxSize(),
 				_elasticSearchConfiguration.bufferMaxTime());
 
 		_registrationList.add(
 			AutoCloseables.mergeAutoCloseableToSafe(
 				_closeMany(_dataMany), dataManyAutoClosable));
 
+		if (_elasticSearchConfiguration.walEnabled()) {
+
+			try {
+				_writeAheadLog = WriteAheadLog.open(
+					Paths.get(_elasticSearchConfiguration.walPath()),
+					_elasticSearchConfiguration.walSegmentBytes());
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			_registrationList.add(
+				AutoCloseables.mergeAutoCloseableToSafe(_writeAheadLog));
+
+			_drainWriteAheadLog();
+
+		}
+
 	}
 
 	@Modified
@@ -82,30 +136,68 @@ public class ElasticSearchIndexer {
 
 		_dataMany = null;
 
+		_bulkFlowControl = null;
+
+		_writeAheadLog = null;
+
+		_writeAheadLogPaused = false;
+
 	}
 
 	public void sendDocWriteRequest(DocWriteRequest<?> request) {
-		_dataMany.emitNext(request, Sinks.EmitFailureHandler.FAIL_FAST);
+
+		if (!_encode(request)) {
+			_deadLetterUnencodable(request);
+			return;
+		}
+
+		WriteAheadLog writeAheadLog = _writeAheadLog;
+
+		if (writeAheadLog != null) {
+			writeAheadLog.append(request);
+			_drainWriteAheadLog();
+			return;
+		}
+
+		_bulkFlowControl.addPending(_estimateBytes(request));
+		_dataMany.emitNext(request, _RETRY_NON_SERIALIZED);
+
+	}
+
+	public Mono<Void> offerDocWriteRequest(DocWriteRequest<?> request) {
+
+		if (_writeAheadLog != null) {
+			return Mono.fromRunnable(() -> sendDocWriteRequest(request));
+		}
+
+		if (!_encode(request)) {
+			_deadLetterUnencodable(request);
+			return Mono.empty();
+		}
+
+		Sinks.Many<DocWriteRequest<?>> dataMany = _dataMany;
+
+		return _bulkFlowControl
+			.awaitPending(_estimateBytes(request))
+			.doOnSuccess(
+				ignore -> dataMany.emitNext(request, _RETRY_NON_SERIALIZED));
 	}
 
 	private AutoCloseable _registerIndexer(
-		Sinks.Many<DocWriteRequest<?>> many, int maxSize, long maxTimeMs) {
+		Sinks.Many<DocWriteRequest<?>> many, BulkFlowControl bulkFlowControl,
+		int maxSize, long maxTimeMs) {
 
 		Disposable disposable = many
 			.asFlux()
 			.groupBy(DocWriteRequest::index)
 			.flatMap(group -> group.bufferTimeout(
 				maxSize, Duration.ofMillis(maxTimeMs)))
-			.flatMap(docWriteRequestList ->
-				Flux.<BulkItemResponse>create(
-					sink -> _restHighLevelClientProvider
-						.get()
-						.bulkAsync(
-							new BulkRequest().add(docWriteRequestList),
-							RequestOptions.DEFAULT,
-							new BulkReactorActionListener(sink))
-				)
-			)
+			.flatMapIterable(docWriteRequestList -> splitByBytes(
+				docWriteRequestList, bulkFlowControl.getBulkBytes()))
+			.flatMap(docWriteRequestList -> bulkFlowControl
+				.acquireBulk()
+				.thenMany(Flux.defer(
+					() -> _bulk(docWriteRequestList, bulkFlowControl))))
 			.doOnNext(bulkItemResponse -> {
 				if (_log.isDebugEnabled()) {
 					try {
@@ -126,6 +218,403 @@ public class ElasticSearchIndexer {
 		return disposable::dispose;
 	}
 
+	private Flux<BulkItemResponse> _bulk(
+		List<DocWriteRequest<?>> docWriteRequestList,
+		BulkFlowControl bulkFlowControl) {
+
+		long startNanos = System.nanoTime();
+
+		long bytes = docWriteRequestList
+			.stream()
+			.mapToLong(ElasticSearchIndexer::_estimateBytes)
+			.sum();
+
+		boolean[] rejected = new boolean[1];
+
+		_retryBudget.deposit(docWriteRequestList.size());
+
+		return _bulkWithRetry(docWriteRequestList, 0, rejected)
+			.doFinally(signalType -> {
+
+				bulkFlowControl.releaseBulk(
+					TimeUnit.NANOSECONDS.toMillis(
+						System.nanoTime() - startNanos),
+					rejected[0]);
+
+				bulkFlowControl.removePending(bytes);
+
+				WriteAheadLog writeAheadLog = _writeAheadLog;
+
+				if (writeAheadLog != null) {
+					_drainWriteAheadLog();
+				}
+
+				_tenantIndexGeneration.increment(
+					docWriteRequestList.get(0).index());
+
+			});
+
+	}
+
+	private boolean _encode(DocWriteRequest<?> request) {
+
+		if (request instanceof IndexRequest) {
+			return _encode((IndexRequest)request);
+		}
+		else if (request instanceof UpdateRequest) {
+
+			UpdateRequest updateRequest = (UpdateRequest)request;
+
+			return _encode(updateRequest.doc()) &&
+				   _encode(updateRequest.upsertRequest());
+
+		}
+
+		return true;
+
+	}
+
+	private boolean _encode(IndexRequest indexRequest) {
+
+		if (indexRequest == null || indexRequest.source() == null ||
+			indexRequest.getContentType() == _bulkContentType) {
+
+			return true;
+		}
+
+		try (XContentParser parser = XContentHelper.createParser(
+				NamedXContentRegistry.EMPTY,
+				DeprecationHandler.THROW_UNSUPPORTED_OPERATION,
+				indexRequest.source(), indexRequest.getContentType())) {
+
+			XContentBuilder builder = XContentBuilder.builder(
+				_bulkContentType.xContent());
+
+			builder.copyCurrentStructure(parser);
+
+			indexRequest.source(builder);
+
+			return true;
+
+		}
+		catch (IOException e) {
+			_log.error(
+				"cannot encode source of document " + indexRequest.id() +
+				" as " + _bulkContentType, e);
+
+			return false;
+		}
+
+	}
+
+	private void _deadLetterUnencodable(DocWriteRequest<?> request) {
+		_deadLetter(
+			request, RestStatus.BAD_REQUEST,
+			"cannot encode source as " + _bulkContentType, 0);
+	}
+
+	private static XContentType _toBulkContentType(String bulkContentType) {
+
+		XContentType xContentType =
+			XContentType.fromMediaTypeOrFormat(bulkContentType);
+
+		if (xContentType == XContentType.JSON ||
+			xContentType == XContentType.SMILE) {
+
+			return xContentType;
+		}
+
+		_log.warn(
+			"bulk content type " + bulkContentType +
+			" is not supported, falling back to json");
+
+		return XContentType.JSON;
+
+	}
+
+	private void _drainWriteAheadLog() {
+		if (!_writeAheadLogPaused) {
+			_drainWriteAheadLog(Integer.MAX_VALUE);
+		}
+	}
+
+	private void _drainWriteAheadLog(int maxRecords) {
+
+		WriteAheadLog writeAheadLog = _writeAheadLog;
+		BulkFlowControl bulkFlowControl = _bulkFlowControl;
+		Sinks.Many<DocWriteRequest<?>> dataMany = _dataMany;
+
+		if (writeAheadLog == null) {
+			return;
+		}
+
+		synchronized (writeAheadLog) {
+
+			for (int i = 0;
+				 i < maxRecords && bulkFlowControl.hasPendingCapacity(); i++) {
+
+				DocWriteRequest<?> request = writeAheadLog.poll();
+
+				if (request == null) {
+					return;
+				}
+
+				if (!_encode(request)) {
+					_deadLetterUnencodable(request);
+					continue;
+				}
+
+				bulkFlowControl.addPending(_estimateBytes(request));
+
+				dataMany.emitNext(request, _RETRY_NON_SERIALIZED);
+
+			}
+
+		}
+
+	}
+
+	private void _pauseWriteAheadLog() {
+
+		_writeAheadLogPaused = true;
+
+		if (!_writeAheadLogProbeScheduled.compareAndSet(false, true)) {
+			return;
+		}
+
+		Mono
+			.delay(Duration.ofMillis(
+				_elasticSearchConfiguration.bulkRetryMaxBackoffMs()))
+			.subscribe(ignore -> {
+
+				_writeAheadLogProbeScheduled.set(false);
+
+				_drainWriteAheadLog(
+					_elasticSearchConfiguration.bufferMaxSize());
+
+			});
+
+	}
+
+	private void _complete(DocWriteRequest<?> request) {
+
+		WriteAheadLog writeAheadLog = _writeAheadLog;
+
+		if (writeAheadLog != null) {
+			writeAheadLog.complete(request);
+		}
+
+	}
+
+	private void _deadLetter(
+		DocWriteRequest<?> request, RestStatus status, String reason,
+		int attempts) {
+
+		_deadLetterStore
+			.store(request, status, reason, attempts)
+			.doOnTerminate(() -> _complete(request))
+			.subscribe();
+
+	}
+
+	private Flux<BulkItemResponse> _bulkWithRetry(
+		List<DocWriteRequest<?>> docWriteRequestList, int attempt,
+		boolean[] rejected) {
+
+		return Mono
+			.<BulkResponse>create(
+				sink -> _restHighLevelClientProvider
+					.get()
+					.bulkAsync(
+						new BulkRequest().add(docWriteRequestList),
+						RequestOptions.DEFAULT,
+						new ReactorActionListener<>(sink))
+			)
+			.flatMapMany(bulkResponse -> {
+
+				List<BulkItemResponse> bulkItemResponseList =
+					new ArrayList<>();
+
+				List<DocWriteRequest<?>> retryList = new ArrayList<>();
+
+				for (BulkItemResponse item : bulkResponse.getItems()) {
+
+					if (!item.isFailed()) {
+
+						bulkItemResponseList.add(item);
+
+						_complete(docWriteRequestList.get(item.getItemId()));
+
+						_writeAheadLogPaused = false;
+
+						continue;
+					}
+
+					RestStatus status = item.getFailure().getStatus();
+
+					rejected[0] |= status == RestStatus.TOO_MANY_REQUESTS;
+
+					_retryOrDeadLetter(
+						docWriteRequestList.get(item.getItemId()), status,
+						item.getFailureMessage(), attempt, retryList);
+
+				}
+
+				return Flux
+					.fromIterable(bulkItemResponseList)
+					.concatWith(_retry(retryList, attempt, rejected));
+
+			})
+			.onErrorResume(throwable -> {
+
+				RestStatus status = throwable instanceof IOException
+					? RestStatus.SERVICE_UNAVAILABLE
+					: ExceptionsHelper.status(throwable);
+
+				rejected[0] |= status == RestStatus.TOO_MANY_REQUESTS;
+
+				List<DocWriteRequest<?>> retryList = new ArrayList<>();
+
+				for (DocWriteRequest<?> docWriteRequest : docWriteRequestList) {
+
+					if (throwable instanceof IOException &&
+						docWriteRequest.id() == null) {
+
+						// the bulk may have been applied, and a document
+						// without an id would be indexed twice
+						_deadLetter(
+							docWriteRequest, status, throwable.getMessage(),
+							attempt + 1);
+
+						continue;
+					}
+
+					_retryOrDeadLetter(
+						docWriteRequest, status, throwable.getMessage(),
+						attempt, retryList);
+
+				}
+
+				return _retry(retryList, attempt, rejected);
+
+			});
+
+	}
+
+	private void _retryOrDeadLetter(
+		DocWriteRequest<?> docWriteRequest, RestStatus status, String reason,
+		int attempt, List<DocWriteRequest<?>> retryList) {
+
+		if (_RETRYABLE_STATUSES.contains(status) &&
+			attempt < _elasticSearchConfiguration.bulkMaxRetries() &&
+			_retryBudget.tryWithdraw()) {
+
+			retryList.add(docWriteRequest);
+
+			return;
+		}
+
+		WriteAheadLog writeAheadLog = _writeAheadLog;
+
+		if (writeAheadLog != null && _RETRYABLE_STATUSES.contains(status)) {
+
+			writeAheadLog.requeue(docWriteRequest);
+
+			_pauseWriteAheadLog();
+
+			return;
+		}
+
+		_deadLetter(docWriteRequest, status, reason, attempt + 1);
+
+	}
+
+	private Flux<BulkItemResponse> _retry(
+		List<DocWriteRequest<?>> retryList, int attempt, boolean[] rejected) {
+
+		if (retryList.isEmpty()) {
+			return Flux.empty();
+		}
+
+		Metrics.counter("openk9.search.client.bulk.retries")
+			.increment(retryList.size());
+
+		long maxBackoffMs = Math.min(
+			_elasticSearchConfiguration.bulkRetryMaxBackoffMs(),
+			_elasticSearchConfiguration.bulkRetryInitialBackoffMs() <<
+			Math.min(attempt, 30));
+
+		return Mono
+			.delay(Duration.ofMillis(
+				ThreadLocalRandom.current().nextLong(maxBackoffMs + 1)))
+			.thenMany(Flux.defer(
+				() -> _bulkWithRetry(retryList, attempt + 1, rejected)));
+
+	}
+
+	static List<List<DocWriteRequest<?>>> splitByBytes(
+		List<DocWriteRequest<?>> docWriteRequestList, long maxBytes) {
+
+		List<List<DocWriteRequest<?>>> bulks = new ArrayList<>();
+
+		List<DocWriteRequest<?>> bulk = new ArrayList<>();
+
+		long bytes = 0;
+
+		for (DocWriteRequest<?> docWriteRequest : docWriteRequestList) {
+
+			long requestBytes = _estimateBytes(docWriteRequest);
+
+			if (!bulk.isEmpty() && bytes + requestBytes > maxBytes) {
+				bulks.add(bulk);
+				bulk = new ArrayList<>();
+				bytes = 0;
+			}
+
+			bulk.add(docWriteRequest);
+
+			bytes += requestBytes;
+
+		}
+
+		if (!bulk.isEmpty()) {
+			bulks.add(bulk);
+		}
+
+		return bulks;
+
+	}
+
+	private static long _estimateBytes(DocWriteRequest<?> docWriteRequest) {
+
+		long bytes = _REQUEST_OVERHEAD_BYTES;
+
+		if (docWriteRequest instanceof IndexRequest) {
+			bytes += _sourceBytes((IndexRequest)docWriteRequest);
+		}
+		else if (docWriteRequest instanceof UpdateRequest) {
+
+			UpdateRequest updateRequest = (UpdateRequest)docWriteRequest;
+
+			bytes += _sourceBytes(updateRequest.doc());
+			bytes += _sourceBytes(updateRequest.upsertRequest());
+
+		}
+
+		return bytes;
+
+	}
+
+	private static long _sourceBytes(IndexRequest indexRequest) {
+
+		if (indexRequest == null || indexRequest.source() == null) {
+			return 0;
+		}
+
+		return indexRequest.source().length();
+
+	}
+
 	private void _manageExceptions(Throwable throwable, Object object) {
 
 		if (_log.isErrorEnabled()) {
@@ -147,6 +636,19 @@ public class ElasticSearchIndexer {
 
 	private Sinks.Many<DocWriteRequest<?>> _dataMany;
 
+	private BulkFlowControl _bulkFlowControl;
+
+	private RetryBudget _retryBudget;
+
+	private WriteAheadLog _writeAheadLog;
+
+	private volatile boolean _writeAheadLogPaused;
+
+	private final AtomicBoolean _writeAheadLogProbeScheduled =
+		new AtomicBoolean();
+
+	private XContentType _bulkContentType;
+
 	private final List<AutoCloseables.AutoCloseableSafe> _registrationList =
 		new ArrayList<>();
 
@@ -159,6 +661,22 @@ public class ElasticSearchIndexer {
 	@Reference
 	private ElasticSearchConfiguration _elasticSearchConfiguration;
 
+	@Reference
+	private TenantIndexGeneration _tenantIndexGeneration;
+
+	@Reference
+	private DeadLetterStore _deadLetterStore;
+
+	private static final long _REQUEST_OVERHEAD_BYTES = 64;
+
+	private static final Set<RestStatus> _RETRYABLE_STATUSES = EnumSet.of(
+		RestStatus.TOO_MANY_REQUESTS, RestStatus.BAD_GATEWAY,
+		RestStatus.SERVICE_UNAVAILABLE, RestStatus.GATEWAY_TIMEOUT);
+
+	private static final Sinks.EmitFailureHandler _RETRY_NON_SERIALIZED =
+		(signalType, emitResult) ->
+			emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED;
+
 	private static final Logger _log = LoggerFactory
 		.getLogger(ElasticSearchIndexer.class);
 
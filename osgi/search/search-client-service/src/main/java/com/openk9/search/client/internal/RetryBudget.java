@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal;
+
+class RetryBudget {
+
+	RetryBudget(double ratio, long maxTokens) {
+		_ratio = ratio;
+		_maxTokens = maxTokens;
+		_tokens = maxTokens;
+	}
+
+	synchronized void deposit(int requests) {
+		_tokens = Math.min(_maxTokens, _tokens + requests * _ratio);
+	}
+
+	synchronized boolean tryWithdraw() {
+
+		if (_tokens < 1) {
+			return false;
+		}
+
+		_tokens--;
+
+		return true;
+
+	}
+
+	private final double _ratio;
+	private final long _maxTokens;
+
+	private double _tokens;
+
+}
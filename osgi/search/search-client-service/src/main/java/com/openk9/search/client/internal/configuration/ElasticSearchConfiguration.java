@@ -33,6 +33,36 @@ public class ElasticSearchConfiguration {
 		String[] hosts() default {"localhost:9200"};
 		int bufferMaxSize() default 100;
 		long bufferMaxTime() default 1_000;
+		long bulkMaxBytes() default 5_242_880;
+		long bulkMinBytes() default 524_288;
+		int bulkMaxConcurrency() default 4;
+		long bulkTargetLatencyMs() default 2_000;
+		long maxPendingBytes() default 67_108_864;
+		int bulkMaxRetries() default 5;
+		long bulkRetryInitialBackoffMs() default 100;
+		long bulkRetryMaxBackoffMs() default 10_000;
+		double bulkRetryBudgetRatio() default 0.2;
+		long bulkRetryBudgetMaxTokens() default 1_000;
+		String deadLetterPath() default "dead-letter";
+		String bulkContentType() default "json";
+		boolean walEnabled() default false;
+		String walPath() default "wal";
+		int walSegmentBytes() default 67_108_864;
+		boolean searchBatchEnabled() default false;
+		int searchBatchMaxSize() default 32;
+		long searchBatchMaxTime() default 5;
+		long searchTimeoutGraceMs() default 20;
+		String nodeSelector() default "round_robin";
+		double nodeLatencyTolerance() default 1.5;
+		long nodeLatencyHalfLifeMs() default 30_000;
+		boolean sniffEnabled() default false;
+		int sniffIntervalMs() default 300_000;
+		int sniffAfterFailureDelayMs() default 60_000;
+		int maxConnPerRoute() default 50;
+		int maxConnTotal() default 200;
+		int ioThreadCount() default 0;
+		int connectTimeoutMs() default 1_000;
+		int socketTimeoutMs() default 30_000;
 	}
 
 	@Activate
@@ -65,6 +95,126 @@ public class ElasticSearchConfiguration {
 		return _config.bufferMaxTime();
 	}
 
+	public long bulkMaxBytes() {
+		return _config.bulkMaxBytes();
+	}
+
+	public long bulkMinBytes() {
+		return _config.bulkMinBytes();
+	}
+
+	public int bulkMaxConcurrency() {
+		return _config.bulkMaxConcurrency();
+	}
+
+	public long bulkTargetLatencyMs() {
+		return _config.bulkTargetLatencyMs();
+	}
+
+	public long maxPendingBytes() {
+		return _config.maxPendingBytes();
+	}
+
+	public int bulkMaxRetries() {
+		return _config.bulkMaxRetries();
+	}
+
+	public long bulkRetryInitialBackoffMs() {
+		return _config.bulkRetryInitialBackoffMs();
+	}
+
+	public long bulkRetryMaxBackoffMs() {
+		return _config.bulkRetryMaxBackoffMs();
+	}
+
+	public double bulkRetryBudgetRatio() {
+		return _config.bulkRetryBudgetRatio();
+	}
+
+	public long bulkRetryBudgetMaxTokens() {
+		return _config.bulkRetryBudgetMaxTokens();
+	}
+
+	public String deadLetterPath() {
+		return _config.deadLetterPath();
+	}
+
+	public String bulkContentType() {
+		return _config.bulkContentType();
+	}
+
+	public boolean walEnabled() {
+		return _config.walEnabled();
+	}
+
+	public String walPath() {
+		return _config.walPath();
+	}
+
+	public int walSegmentBytes() {
+		return _config.walSegmentBytes();
+	}
+
+	public boolean searchBatchEnabled() {
+		return _config.searchBatchEnabled();
+	}
+
+	public int searchBatchMaxSize() {
+		return _config.searchBatchMaxSize();
+	}
+
+	public long searchBatchMaxTime() {
+		return _config.searchBatchMaxTime();
+	}
+
+	public long searchTimeoutGraceMs() {
+		return _config.searchTimeoutGraceMs();
+	}
+
+	public String nodeSelector() {
+		return _config.nodeSelector();
+	}
+
+	public double nodeLatencyTolerance() {
+		return _config.nodeLatencyTolerance();
+	}
+
+	public long nodeLatencyHalfLifeMs() {
+		return _config.nodeLatencyHalfLifeMs();
+	}
+
+	public boolean sniffEnabled() {
+		return _config.sniffEnabled();
+	}
+
+	public int sniffIntervalMs() {
+		return _config.sniffIntervalMs();
+	}
+
+	public int sniffAfterFailureDelayMs() {
+		return _config.sniffAfterFailureDelayMs();
+	}
+
+	public int maxConnPerRoute() {
+		return _config.maxConnPerRoute();
+	}
+
+	public int maxConnTotal() {
+		return _config.maxConnTotal();
+	}
+
+	public int ioThreadCount() {
+		return _config.ioThreadCount();
+	}
+
+	public int connectTimeoutMs() {
+		return _config.connectTimeoutMs();
+	}
+
+	public int socketTimeoutMs() {
+		return _config.socketTimeoutMs();
+	}
+
 	private Config _config;
 
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal.deadletter;
+
+import com.openk9.search.client.api.DeadLetterQueue;
+import com.openk9.search.client.internal.ElasticSearchIndexer;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import reactor.core.publisher.Mono;
+
+@Component(
+	immediate = true,
+	service = DeadLetterQueue.class
+)
+public class DeadLetterQueueImpl implements DeadLetterQueue {
+
+	@Override
+	public Mono<Long> replay(long tenantId) {
+		return _deadLetterStore
+			.drain(tenantId + "-")
+			.concatMap(request -> _elasticSearchIndexer
+				.offerDocWriteRequest(request)
+				.thenReturn(request))
+			.count();
+	}
+
+	@Reference
+	private DeadLetterStore _deadLetterStore;
+
+	@Reference
+	private ElasticSearchIndexer _elasticSearchIndexer;
+
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal.deadletter;
+
+import com.openk9.json.api.JsonFactory;
+import com.openk9.search.client.internal.configuration.ElasticSearchConfiguration;
+import io.micrometer.core.instrument.Metrics;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+@Component(
+	immediate = true,
+	service = DeadLetterStore.class
+)
+public class DeadLetterStore {
+
+	/**
+	 * Appends the request to its index's dead-letter file on the
+	 * bounded-elastic scheduler. Write failures are logged, never signalled.
+	 */
+	public Mono<Void> store(
+		DocWriteRequest<?> request, RestStatus status, String reason,
+		int attempts) {
+
+		return Mono
+			.<Void>fromRunnable(() -> _write(request, status, reason, attempts))
+			.subscribeOn(Schedulers.boundedElastic());
+
+	}
+
+	/**
+	 * Replays the dead letters of the indices starting with
+	 * {@code indexPrefix}. Each file is deleted once fully read; if the
+	 * replay stops early, its claimed files are left to the next drain.
+	 */
+	public Flux<DocWriteRequest<?>> drain(String indexPrefix) {
+		return Flux
+			.defer(() -> {
+
+				List<Path> claimedPaths;
+
+				try {
+					claimedPaths = _claim(indexPrefix);
+				}
+				catch (IOException | UncheckedIOException e) {
+					return Flux.error(e);
+				}
+
+				return Flux
+					.fromIterable(claimedPaths)
+					.concatMap(this::_read)
+					.doFinally(signalType ->
+						_claimedPaths.removeAll(claimedPaths));
+
+			})
+			.subscribeOn(Schedulers.boundedElastic());
+	}
+
+	private void _write(
+		DocWriteRequest<?> request, RestStatus status, String reason,
+		int attempts) {
+
+		try {
+
+			DeadLetter deadLetter = _toDeadLetter(request);
+
+			deadLetter.setTimestamp(System.currentTimeMillis());
+			deadLetter.setStatus(status.getStatus());
+			deadLetter.setReason(reason);
+			deadLetter.setAttempts(attempts);
+
+			String line = _jsonFactory.toJson(deadLetter) + "\n";
+
+			Path path = _getPath().resolve(request.index() + _EXTENSION);
+
+			synchronized (this) {
+				Files.createDirectories(path.getParent());
+				Files.write(
+					path, line.getBytes(StandardCharsets.UTF_8),
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			}
+
+			Metrics.counter(
+				"openk9.search.client.bulk.dead_letters",
+				"status", String.valueOf(status.getStatus())
+			).increment();
+
+		}
+		catch (IOException | RuntimeException e) {
+			_log.error(
+				"cannot dead-letter " + request.opType() + " of document " +
+				request.id() + " in index " + request.index(), e);
+		}
+
+	}
+
+	private Flux<DocWriteRequest<?>> _read(Path path) {
+		return Flux
+			.using(
+				() -> Files.lines(path, StandardCharsets.UTF_8),
+				Flux::fromStream,
+				Stream::close)
+			.filter(line -> !line.isEmpty())
+			.<DocWriteRequest<?>>handle((line, sink) -> {
+				try {
+					sink.next(
+						_toDocWriteRequest(
+							_jsonFactory.fromJson(line, DeadLetter.class)));
+				}
+				catch (RuntimeException e) {
+					_log.error("skipping malformed dead letter in " + path, e);
+				}
+			})
+			.concatWith(Mono.fromRunnable(() -> _delete(path)));
+	}
+
+	/**
+	 * Renames the matching files so that letters stored meanwhile go to a
+	 * new file. Files claimed by a drain that did not finish, in this
+	 * process or a previous one, are matched again.
+	 */
+	private List<Path> _claim(String indexPrefix) throws IOException {
+
+		Path directory = _getPath();
+
+		if (!Files.isDirectory(directory)) {
+			return Collections.emptyList();
+		}
+
+		String claimSuffix = "." + System.nanoTime();
+
+		synchronized (this) {
+			try (Stream<Path> paths = Files.list(directory)) {
+
+				List<Path> claimedPaths = new ArrayList<>();
+
+				Iterator<Path> iterator = paths
+					.filter(path -> !_claimedPaths.contains(path))
+					.iterator();
+
+				try {
+					while (iterator.hasNext()) {
+
+						Path path = iterator.next();
+
+						String fileName = path.getFileName().toString();
+
+						int extensionIndex = fileName.lastIndexOf(_EXTENSION);
+
+						if (!fileName.startsWith(indexPrefix) ||
+							extensionIndex < 0) {
+
+							continue;
+						}
+
+						String baseName = fileName.substring(
+							0, extensionIndex + _EXTENSION.length());
+
+						if (baseName.length() != fileName.length() &&
+							fileName.charAt(baseName.length()) != '.') {
+
+							continue;
+						}
+
+						Path claimedPath = Files.move(
+							path, path.resolveSibling(baseName + claimSuffix),
+							StandardCopyOption.ATOMIC_MOVE);
+
+						_claimedPaths.add(claimedPath);
+
+						claimedPaths.add(claimedPath);
+
+					}
+				}
+				catch (IOException | RuntimeException e) {
+					_claimedPaths.removeAll(claimedPaths);
+
+					throw e;
+				}
+
+				return claimedPaths;
+
+			}
+		}
+
+	}
+
+	private void _delete(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private DeadLetter _toDeadLetter(DocWriteRequest<?> request)
+		throws IOException {
+
+		DeadLetter deadLetter = new DeadLetter();
+
+		deadLetter.setIndex(request.index());
+		deadLetter.setId(request.id());
+		deadLetter.setRouting(request.routing());
+		deadLetter.setOpType(request.opType().name());
+
+		if (request instanceof IndexRequest) {
+			deadLetter.setSource(_toJson((IndexRequest)request));
+		}
+		else if (request instanceof UpdateRequest) {
+
+			UpdateRequest updateRequest = (UpdateRequest)request;
+
+			deadLetter.setSource(_toJson(updateRequest.doc()));
+			deadLetter.setUpsert(_toJson(updateRequest.upsertRequest()));
+			deadLetter.setDocAsUpsert(updateRequest.docAsUpsert());
+
+		}
+
+		return deadLetter;
+
+	}
+
+	private DocWriteRequest<?> _toDocWriteRequest(DeadLetter deadLetter) {
+
+		DocWriteRequest.OpType opType =
+			DocWriteRequest.OpType.valueOf(deadLetter.getOpType());
+
+		switch (opType) {
+			case INDEX:
+			case CREATE:
+				IndexRequest indexRequest = new IndexRequest(
+					deadLetter.getIndex())
+					.opType(opType)
+					.source(deadLetter.getSource(), XContentType.JSON);
+
+				if (deadLetter.getId() != null) {
+					indexRequest.id(deadLetter.getId());
+				}
+
+				return indexRequest.routing(deadLetter.getRouting());
+			case UPDATE:
+				UpdateRequest updateRequest = new UpdateRequest(
+					deadLetter.getIndex(), deadLetter.getId())
+					.docAsUpsert(deadLetter.isDocAsUpsert())
+					.routing(deadLetter.getRouting());
+
+				if (deadLetter.getSource() != null) {
+					updateRequest.doc(
+						deadLetter.getSource(), XContentType.JSON);
+				}
+
+				if (deadLetter.getUpsert() != null) {
+					updateRequest.upsert(
+						deadLetter.getUpsert(), XContentType.JSON);
+				}
+
+				return updateRequest;
+			default:
+				return new DeleteRequest(
+					deadLetter.getIndex(), deadLetter.getId())
+					.routing(deadLetter.getRouting());
+		}
+
+	}
+
+	private static String _toJson(IndexRequest indexRequest)
+		throws IOException {
+
+		if (indexRequest == null || indexRequest.source() == null) {
+			return null;
+		}
+
+		return XContentHelper.convertToJson(
+			indexRequest.source(), false, indexRequest.getContentType());
+
+	}
+
+	private Path _getPath() {
+		return Paths.get(_elasticSearchConfiguration.deadLetterPath());
+	}
+
+	@Reference
+	private JsonFactory _jsonFactory;
+
+	@Reference
+	private ElasticSearchConfiguration _elasticSearchConfiguration;
+
+	private final Set<Path> _claimedPaths = ConcurrentHashMap.newKeySet();
+
+	private static final String _EXTENSION = ".ndjson";
+
+	private static final Logger _log = LoggerFactory.getLogger(
+		DeadLetterStore.class);
+
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal.index;
+
+import com.openk9.search.client.api.BulkLoadMode;
+import com.openk9.search.client.api.ReactorActionListener;
+import com.openk9.search.client.api.RestHighLevelClientProvider;
+import com.openk9.search.client.api.TenantIndexGeneration;
+import com.openk9.search.client.internal.configuration.ElasticSearchConfiguration;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.support.master.AcknowledgedResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.core.CountRequest;
+import org.elasticsearch.client.core.CountResponse;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.CreateIndexResponse;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component(
+	immediate = true,
+	service = BulkLoadMode.class
+)
+public class BulkLoadModeImpl implements BulkLoadMode {
+
+	@interface Config {
+		boolean enabled() default true;
+		long idleTimeoutMs() default 300_000;
+		long checkIntervalMs() default 30_000;
+	}
+
+	@Activate
+	public void activate(Config config) {
+
+		_config = config;
+
+		_disposable = _recoverOrphans()
+			.thenMany(
+				Flux.interval(Duration.ofMillis(config.checkIntervalMs())))
+			.concatMap(ignore -> _restoreIdle())
+			.subscribe();
+
+	}
+
+	@Modified
+	public void modified(Config config) {
+		deactivate();
+		activate(config);
+	}
+
+	@Deactivate
+	public void deactivate() {
+		_disposable.dispose();
+	}
+
+	@Override
+	public Mono<Void> enter(long datasourceId, String indexName) {
+
+		if (!_config.enabled()) {
+			return Mono.empty();
+		}
+
+		return Mono.defer(() -> {
+
+			BulkLoad current = _bulkLoads.get(indexName);
+
+			if (current != null) {
+				current.datasourceIds.add(datasourceId);
+				current.lastActivity = System.currentTimeMillis();
+				return Mono.empty();
+			}
+
+			return _entering
+				.computeIfAbsent(
+					indexName,
+					key -> _enter(key)
+						.doFinally(signalType -> _entering.remove(key))
+						.cache())
+				.then(Mono.fromRunnable(() -> {
+
+					BulkLoad bulkLoad = _bulkLoads.get(indexName);
+
+					if (bulkLoad != null) {
+						bulkLoad.datasourceIds.add(datasourceId);
+					}
+
+				}));
+
+		});
+
+	}
+
+	@Override
+	public Mono<Void> enterIfEmpty(long datasourceId, String indexName) {
+
+		if (!_config.enabled()) {
+			return Mono.empty();
+		}
+
+		return _isEmpty(indexName)
+			.filter(Boolean::booleanValue)
+			.flatMap(ignore -> enter(datasourceId, indexName));
+
+	}
+
+	@Override
+	public Mono<Void> reenter(long datasourceId, String indexName) {
+
+		if (!_config.enabled()) {
+			return Mono.empty();
+		}
+
+		return Mono.defer(() -> {
+
+			BulkLoad previous = _bulkLoads.remove(indexName);
+
+			return enter(datasourceId, indexName)
+				.then(Mono.fromRunnable(() -> {
+
+					BulkLoad bulkLoad = _bulkLoads.get(indexName);
+
+					if (previous != null && bulkLoad != null) {
+						bulkLoad.datasourceIds.addAll(previous.datasourceIds);
+					}
+
+				}));
+
+		});
+
+	}
+
+	@Override
+	public void touch(long datasourceId) {
+
+		long now = System.currentTimeMillis();
+
+		for (BulkLoad bulkLoad : _bulkLoads.values()) {
+			if (bulkLoad.datasourceIds.contains(datasourceId)) {
+				bulkLoad.lastActivity = now;
+			}
+		}
+
+	}
+
+	private Mono<Void> _enter(String indexName) {
+
+		return _createIndexIfMissing(indexName)
+			.then(_getSettings(indexName))
+			.flatMap(getSettingsResponse -> {
+
+				String refreshInterval = getSettingsResponse.getSetting(
+					indexName, _REFRESH_INTERVAL);
+
+				String numberOfReplicas = getSettingsResponse.getSetting(
+					indexName, _NUMBER_OF_REPLICAS);
+
+				if ("-1".equals(refreshInterval)) {
+					refreshInterval = null;
+					numberOfReplicas = null;
+				}
+
+				BulkLoad bulkLoad = new BulkLoad(
+					refreshInterval, numberOfReplicas);
+
+				return _putSettings(
+					indexName,
+					Settings
+						.builder()
+						.put(_REFRESH_INTERVAL, "-1")
+						.put(_NUMBER_OF_REPLICAS, 0)
+						.build())
+					.doOnSuccess(ignore -> {
+
+						_bulkLoads.putIfAbsent(indexName, bulkLoad);
+
+						if (_log.isInfoEnabled()) {
+							_log.info(
+								"index " + indexName +
+								" entered bulk-load mode");
+						}
+
+					});
+
+			});
+
+	}
+
+	private Mono<Boolean> _isEmpty(String indexName) {
+
+		return Mono
+			.<Boolean>create(
+				sink -> _restHighLevelClientProvider
+					.get()
+					.indices()
+					.existsAsync(
+						new GetIndexRequest(indexName), RequestOptions.DEFAULT,
+						new ReactorActionListener<>(sink)))
+			.flatMap(exists -> {
+
+				if (!exists) {
+					return Mono.just(true);
+				}
+
+				return Mono
+					.<CountResponse>create(
+						sink -> _restHighLevelClientProvider
+							.get()
+							.countAsync(
+								new CountRequest(indexName),
+								RequestOptions.DEFAULT,
+								new ReactorActionListener<>(sink)))
+					.map(countResponse -> countResponse.getCount() == 0);
+
+			});
+
+	}
+
+	private Mono<Void> _recoverOrphans() {
+
+		GetSettingsRequest getSettingsRequest = new GetSettingsRequest()
+			.indices("*-" + _elasticSearchConfiguration.getDataIndex())
+			.names(_REFRESH_INTERVAL);
+
+		return Mono
+			.<GetSettingsResponse>create(
+				sink -> _restHighLevelClientProvider
+					.get()
+					.indices()
+					.getSettingsAsync(
+						getSettingsRequest, RequestOptions.DEFAULT,
+						new ReactorActionListener<>(sink)))
+			.doOnNext(getSettingsResponse -> {
+
+				Iterator<String> iterator =
+					getSettingsResponse.getIndexToSettings().keysIt();
+
+				while (iterator.hasNext()) {
+
+					String indexName = iterator.next();
+
+					if ("-1".equals(getSettingsResponse.getSetting(
+							indexName, _REFRESH_INTERVAL))) {
+
+						_bulkLoads.putIfAbsent(
+							indexName, new BulkLoad(null, null));
+
+					}
+
+				}
+
+			})
+			.onErrorResume(throwable -> {
+
+				if (_log.isWarnEnabled()) {
+					_log.warn(
+						"cannot look up indices left in bulk-load mode",
+						throwable);
+				}
+
+				return Mono.empty();
+
+			})
+			.then();
+
+	}
+
+	private Mono<Void> _restoreIdle() {
+
+		long now = System.currentTimeMillis();
+
+		return Flux
+			.fromIterable(_bulkLoads.entrySet())
+			.filter(entry ->
+				now - entry.getValue().lastActivity > _config.idleTimeoutMs())
+			.concatMap(entry -> _restore(entry.getKey(), entry.getValue())
+				.doOnSuccess(ignore -> _bulkLoads.remove(
+					entry.getKey(), entry.getValue()))
+				.onErrorResume(throwable -> {
+
+					if (_log.isErrorEnabled()) {
+						_log.error(
+							"cannot restore settings of index " +
+							entry.getKey(), throwable);
+					}
+
+					return Mono.empty();
+
+				}))
+			.then();
+
+	}
+
+	private Mono<Void> _restore(String indexName, BulkLoad bulkLoad) {
+
+		Settings.Builder builder = Settings.builder();
+
+		if (bulkLoad.refreshInterval != null) {
+			builder.put(_REFRESH_INTERVAL, bulkLoad.refreshInterval);
+		}
+		else {
+			builder.putNull(_REFRESH_INTERVAL);
+		}
+
+		if (bulkLoad.numberOfReplicas != null) {
+			builder.put(_NUMBER_OF_REPLICAS, bulkLoad.numberOfReplicas);
+		}
+		else {
+			builder.putNull(_NUMBER_OF_REPLICAS);
+		}
+
+		return _putSettings(indexName, builder.build())
+			.then(Mono.<RefreshResponse>create(
+				sink -> _restHighLevelClientProvider
+					.get()
+					.indices()
+					.refreshAsync(
+						new RefreshRequest(indexName), RequestOptions.DEFAULT,
+						new ReactorActionListener<>(sink))))
+			.doOnSuccess(ignore -> {
+
+				_tenantIndexGeneration.increment(indexName);
+
+				if (_log.isInfoEnabled()) {
+					_log.info("index " + indexName + " left bulk-load mode");
+				}
+
+			})
+			.then();
+
+	}
+
+	private Mono<Void> _createIndexIfMissing(String indexName) {
+
+		return Mono
+			.<Boolean>create(
+				sink -> _restHighLevelClientProvider
+					.get()
+					.indices()
+					.existsAsync(
+						new GetIndexRequest(indexName), RequestOptions.DEFAULT,
+						new ReactorActionListener<>(sink)))
+			.filter(exists -> !exists)
+			.flatMap(ignore -> Mono.<CreateIndexResponse>create(
+				sink -> _restHighLevelClientProvider
+					.get()
+					.indices()
+					.createAsync(
+						new CreateIndexRequest(indexName),
+						RequestOptions.DEFAULT,
+						new ReactorActionListener<>(sink))))
+			.then();
+
+	}
+
+	private Mono<GetSettingsResponse> _getSettings(String indexName) {
+
+		GetSettingsRequest getSettingsRequest = new GetSettingsRequest()
+			.indices(indexName)
+			.names(_REFRESH_INTERVAL, _NUMBER_OF_REPLICAS)
+			.includeDefaults(true);
+
+		return Mono.create(
+			sink -> _restHighLevelClientProvider
+				.get()
+				.indices()
+				.getSettingsAsync(
+					getSettingsRequest, RequestOptions.DEFAULT,
+					new ReactorActionListener<>(sink)));
+
+	}
+
+	private Mono<Void> _putSettings(String indexName, Settings settings) {
+
+		UpdateSettingsRequest updateSettingsRequest =
+			new UpdateSettingsRequest(indexName).settings(settings);
+
+		return Mono
+			.<AcknowledgedResponse>create(
+				sink -> _restHighLevelClientProvider
+					.get()
+					.indices()
+					.putSettingsAsync(
+						updateSettingsRequest, RequestOptions.DEFAULT,
+						new ReactorActionListener<>(sink)))
+			.then();
+
+	}
+
+	private static class BulkLoad {
+
+		private BulkLoad(String refreshInterval, String numberOfReplicas) {
+			this.refreshInterval = refreshInterval;
+			this.numberOfReplicas = numberOfReplicas;
+		}
+
+		private final Set<Long> datasourceIds = ConcurrentHashMap.newKeySet();
+		private final String refreshInterval;
+		private final String numberOfReplicas;
+		private volatile long lastActivity = System.currentTimeMillis();
+
+	}
+
+	private Config _config;
+
+	private Disposable _disposable;
+
+	private final Map<String, BulkLoad> _bulkLoads = new ConcurrentHashMap<>();
+
+	private final Map<String, Mono<Void>> _entering =
+		new ConcurrentHashMap<>();
+
+	@Reference
+	private RestHighLevelClientProvider _restHighLevelClientProvider;
+
+	@Reference
+	private ElasticSearchConfiguration _elasticSearchConfiguration;
+
+	@Reference
+	private TenantIndexGeneration _tenantIndexGeneration;
+
+	private static final String _REFRESH_INTERVAL = "index.refresh_interval";
+
+	private static final String _NUMBER_OF_REPLICAS = "index.number_of_replicas";
+
+	private static final Logger _log = LoggerFactory.getLogger(
+		BulkLoadModeImpl.class);
+
+}
@@ -39,6 +39,13 @@ public class DocWriteRequestFactoryImpl implements DocWriteRequestFactory {
 				_elasticSearchConfiguration.getDataIndex()));
 	}
 
+	@Override
+	public IndexRequest createDataIndexRequest(
+		long tenantId, String driverName, String id) {
+
+		return createDataIndexRequest(tenantId, driverName).id(id);
+	}
+
 	@Override
 	public IndexRequest createEntityIndexRequest(long tenantId) {
 		return new IndexRequest(
@@ -23,6 +23,7 @@ import com.openk9.search.client.internal.ElasticSearchIndexer;
 import org.elasticsearch.action.DocWriteRequest;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import reactor.core.publisher.Mono;
 
 import java.util.function.Function;
 
@@ -41,6 +42,11 @@ public class IndexBusImpl implements IndexBus {
 		sendRequest(requestFunction.apply(_docWriteRequestFactory));
 	}
 
+	@Override
+	public Mono<Void> offerRequest(DocWriteRequest<?> request) {
+		return _elasticSearchIndexer.offerDocWriteRequest(request);
+	}
+
 	@Reference
 	private ElasticSearchIndexer _elasticSearchIndexer;
 
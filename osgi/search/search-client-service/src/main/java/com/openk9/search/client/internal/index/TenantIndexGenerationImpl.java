@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal.index;
+
+import com.openk9.search.client.api.TenantIndexGeneration;
+import org.osgi.service.component.annotations.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component(
+	immediate = true,
+	service = TenantIndexGeneration.class
+)
+public class TenantIndexGenerationImpl implements TenantIndexGeneration {
+
+	@Override
+	public long getGeneration(long tenantId) {
+
+		AtomicLong generation = _generationMap.get(tenantId);
+
+		if (generation == null) {
+			return 0;
+		}
+
+		return generation.get();
+
+	}
+
+	@Override
+	public void increment(long tenantId) {
+		_generationMap
+			.computeIfAbsent(tenantId, key -> new AtomicLong())
+			.incrementAndGet();
+	}
+
+	@Override
+	public void increment(String indexName) {
+
+		int index = indexName.indexOf('-');
+
+		if (index <= 0) {
+			return;
+		}
+
+		try {
+			increment(Long.parseLong(indexName.substring(0, index)));
+		}
+		catch (NumberFormatException nfe) {
+			// not a tenant index
+		}
+
+	}
+
+	private final Map<Long, AtomicLong> _generationMap =
+		new ConcurrentHashMap<>();
+
+}
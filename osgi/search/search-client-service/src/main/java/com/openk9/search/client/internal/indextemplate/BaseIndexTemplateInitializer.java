@@ -18,8 +18,11 @@
 package com.openk9.search.client.internal.indextemplate;
 
 import org.elasticsearch.cluster.metadata.ComposableIndexTemplate;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.DeprecationHandler;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.osgi.framework.Bundle;
@@ -28,6 +31,7 @@ import org.osgi.framework.BundleContext;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.Map;
 
 abstract class BaseIndexTemplateInitializer {
 
@@ -37,6 +41,8 @@ abstract class BaseIndexTemplateInitializer {
 
 	protected void activate(BundleContext bundleContext) {
 
+		_bundleContext = bundleContext;
+
 		Bundle bundle = bundleContext.getBundle();
 
 		String mappingPosition = indexTemplatePath();
@@ -51,19 +57,25 @@ abstract class BaseIndexTemplateInitializer {
 				+ bundle.getSymbolicName());
 		}
 
-		try (InputStream is = resource.openStream()) {
+		try (InputStream is = resource.openStream();
+			 XContentParser parser = _createParser(is)) {
+
+			Map<String, Object> indexTemplate = parser.map();
+
+			customizeIndexTemplate(indexTemplate);
+
+			XContentBuilder builder =
+				XContentFactory.jsonBuilder().map(indexTemplate);
 
-			XContentParser parser = XContentType
-				.JSON.xContent()
-				.createParser(
-					NamedXContentRegistry.EMPTY,
-					DeprecationHandler.THROW_UNSUPPORTED_OPERATION,
-					is);
+			try (XContentParser templateParser = _createParser(
+					BytesReference.bytes(builder).streamInput())) {
 
-			_indexTemplateService.createOrUpdateIndexTemplate(
-				indexTemplateName(),
-				ComposableIndexTemplate.parse(parser)
-			);
+				_indexTemplateService.createOrUpdateIndexTemplate(
+					indexTemplateName(),
+					ComposableIndexTemplate.parse(templateParser)
+				);
+
+			}
 
 		}
 		catch (IOException exception) {
@@ -72,11 +84,31 @@ abstract class BaseIndexTemplateInitializer {
 
 	}
 
+	protected void customizeIndexTemplate(Map<String, Object> indexTemplate) {
+	}
+
+	protected void update() {
+		if (_bundleContext != null) {
+			activate(_bundleContext);
+		}
+	}
+
+	private XContentParser _createParser(InputStream is) throws IOException {
+		return XContentType
+			.JSON.xContent()
+			.createParser(
+				NamedXContentRegistry.EMPTY,
+				DeprecationHandler.THROW_UNSUPPORTED_OPERATION,
+				is);
+	}
+
 	protected void setIndexTemplateService(
 		IndexTemplateService indexTemplateService) {
 		_indexTemplateService = indexTemplateService;
 	}
 
+	private BundleContext _bundleContext;
+
 	private IndexTemplateService _indexTemplateService;
 
 }
@@ -17,10 +17,19 @@
 
 package com.openk9.search.client.internal.indextemplate;
 
+import com.openk9.search.enrich.mapper.api.EntityMapper;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Component(immediate = true, enabled = true)
 public class EntityIndexTemplateInitializer extends
@@ -41,6 +50,41 @@ public class EntityIndexTemplateInitializer extends
 		return "base_entity_template";
 	}
 
+	@Override
+	protected void customizeIndexTemplate(Map<String, Object> indexTemplate) {
+
+		Map<String, Object> properties = _getOrCreate(
+			_getOrCreate(
+				_getOrCreate(indexTemplate, "template"), "mappings"),
+			"properties");
+
+		for (EntityMapper entityMapper : _entityMappers) {
+
+			for (String searchKeyword : entityMapper.getSearchKeywords()) {
+
+				Map<String, Object> property = _getOrCreate(
+					properties, searchKeyword);
+
+				if (!property.containsKey("type")) {
+					property.put("type", "text");
+					_getOrCreate(property, "fields").put(
+						"keyword",
+						Map.of("type", "keyword", "ignore_above", 256));
+				}
+
+				_getOrCreate(property, "fields").put(
+					EntityMapper.PREFIX_SUBFIELD,
+					Map.of(
+						"type", "text",
+						"analyzer", "entity_prefix",
+						"search_analyzer", "entity_prefix_search"));
+
+			}
+
+		}
+
+	}
+
 	@Override
 	@Reference
 	public void setIndexTemplateService(
@@ -48,4 +92,34 @@ public class EntityIndexTemplateInitializer extends
 		super.setIndexTemplateService(indexTemplateService);
 	}
 
+	@Reference(
+		policy = ReferencePolicy.DYNAMIC,
+		policyOption = ReferencePolicyOption.GREEDY,
+		cardinality = ReferenceCardinality.MULTIPLE,
+		service = EntityMapper.class,
+		bind = "addEntityMapper",
+		unbind = "removeEntityMapper"
+	)
+	public void addEntityMapper(EntityMapper entityMapper) {
+		_entityMappers.add(entityMapper);
+		update();
+	}
+
+	public void removeEntityMapper(EntityMapper entityMapper) {
+		_entityMappers.remove(entityMapper);
+	}
+
+	private Map<String, Object> _getOrCreate(
+		Map<String, Object> map, String key) {
+
+		return (Map<String, Object>)map.compute(
+			key, (k, value) -> value instanceof Map
+				? new HashMap<>((Map<String, Object>)value)
+				: new HashMap<String, Object>());
+
+	}
+
+	private final List<EntityMapper> _entityMappers =
+		new CopyOnWriteArrayList<>();
+
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal.node;
+
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+public class NodeSelectors {
+
+	public static NodeSelector of(
+		String name, NodeStatsTracker nodeStatsTracker, double tolerance) {
+
+		switch (name) {
+			case "round_robin":
+				return NodeSelector.ANY;
+			case "skip_dedicated_masters":
+				return NodeSelector.SKIP_DEDICATED_MASTERS;
+			case "least_loaded":
+				return new ScoreNodeSelector(
+					"least_loaded",
+					nodes -> nodes
+						.stream()
+						.mapToDouble(node -> nodeStatsTracker
+							.getNodeStats(node.getHost())
+							.getInFlight())
+						.toArray(),
+					1);
+			case "lowest_latency":
+				return new ScoreNodeSelector(
+					"lowest_latency",
+					nodes -> _latencyScores(nodeStatsTracker, nodes),
+					Math.max(1, tolerance));
+			default:
+				throw new IllegalArgumentException(
+					"unknown node selector: " + name);
+		}
+
+	}
+
+	/**
+	 * Nodes without a measurement score as the median of the measured ones,
+	 * so a fresh node neither wins nor loses by default.
+	 */
+	private static double[] _latencyScores(
+		NodeStatsTracker nodeStatsTracker, List<Node> nodes) {
+
+		List<NodeStatsTracker.NodeStats> nodeStatsList = new ArrayList<>();
+
+		for (Node node : nodes) {
+			nodeStatsList.add(nodeStatsTracker.getNodeStats(node.getHost()));
+		}
+
+		double[] measured = nodeStatsList
+			.stream()
+			.mapToDouble(NodeStatsTracker.NodeStats::getLatencyMs)
+			.filter(latencyMs -> !Double.isNaN(latencyMs))
+			.sorted()
+			.toArray();
+
+		if (measured.length == 0) {
+			return new double[nodes.size()];
+		}
+
+		int middle = measured.length / 2;
+
+		double median = measured.length % 2 == 1
+			? measured[middle]
+			: (measured[middle - 1] + measured[middle]) / 2;
+
+		return nodeStatsList
+			.stream()
+			.mapToDouble(nodeStats -> nodeStats.getLatencyMs(median))
+			.toArray();
+
+	}
+
+	private static class ScoreNodeSelector implements NodeSelector {
+
+		private ScoreNodeSelector(
+			String name, Function<List<Node>, double[]> scoreFunction,
+			double tolerance) {
+
+			_name = name;
+			_scoreFunction = scoreFunction;
+			_tolerance = tolerance;
+		}
+
+		@Override
+		public void select(Iterable<Node> nodes) {
+
+			NodeSelector.SKIP_DEDICATED_MASTERS.select(nodes);
+
+			List<Node> nodeList = new ArrayList<>();
+
+			nodes.forEach(nodeList::add);
+
+			if (nodeList.isEmpty()) {
+				return;
+			}
+
+			double[] scores = _scoreFunction.apply(nodeList);
+
+			double threshold = Arrays.stream(scores).min().getAsDouble() *
+				_tolerance;
+
+			Iterator<Node> iterator = nodes.iterator();
+
+			for (double score : scores) {
+
+				iterator.next();
+
+				if (score > threshold) {
+					iterator.remove();
+				}
+
+			}
+
+		}
+
+		@Override
+		public String toString() {
+			return _name;
+		}
+
+		private final String _name;
+		private final Function<List<Node>, double[]> _scoreFunction;
+		private final double _tolerance;
+
+	}
+
+}
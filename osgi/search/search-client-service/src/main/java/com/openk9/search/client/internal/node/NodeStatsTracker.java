@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal.node;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.RestClient;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class NodeStatsTracker extends RestClient.FailureListener
+	implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+	public NodeStatsTracker(long maxInFlightMs, long latencyHalfLifeMs) {
+		_maxInFlightNanos = TimeUnit.MILLISECONDS.toNanos(maxInFlightMs);
+		_latencyHalfLifeNanos = TimeUnit.MILLISECONDS.toNanos(
+			Math.max(1, latencyHalfLifeMs));
+	}
+
+	@Override
+	public void process(HttpRequest request, HttpContext context) {
+
+		HttpHost host = _getTargetHost(context);
+
+		if (host == null) {
+			return;
+		}
+
+		getNodeStats(host).requestStarted(context);
+
+	}
+
+	@Override
+	public void process(HttpResponse response, HttpContext context) {
+
+		HttpHost host = _getTargetHost(context);
+
+		if (host == null) {
+			return;
+		}
+
+		getNodeStats(host).requestCompleted(context);
+
+	}
+
+	@Override
+	public void onFailure(Node node) {
+		getNodeStats(node.getHost()).requestFailed();
+	}
+
+	public NodeStats getNodeStats(HttpHost host) {
+		return _nodeStatsMap.computeIfAbsent(
+			host.toHostString(),
+			hostString -> new NodeStats(
+				hostString, _maxInFlightNanos, _latencyHalfLifeNanos));
+	}
+
+	public void clear() {
+		_nodeStatsMap.values().forEach(NodeStats::remove);
+		_nodeStatsMap.clear();
+	}
+
+	private static HttpHost _getTargetHost(HttpContext context) {
+
+		Object host = context.getAttribute(HttpCoreContext.HTTP_TARGET_HOST);
+
+		return host instanceof HttpHost ? (HttpHost)host : null;
+
+	}
+
+	public static class NodeStats {
+
+		public int getInFlight() {
+
+			long now = System.nanoTime();
+
+			_inFlight.values().removeIf(
+				startNanos -> now - startNanos > _maxInFlightNanos);
+
+			return _inFlight.size();
+
+		}
+
+		/**
+		 * @return the latency EWMA, or NaN if the node was never measured
+		 */
+		public synchronized double getLatencyMs() {
+			return _latencyUpdatedNanos == 0 ? Double.NaN : _latencyMs;
+		}
+
+		/**
+		 * The latency EWMA decayed towards {@code neutralMs} by the time
+		 * elapsed since its last sample. A node that stops receiving traffic
+		 * drifts back to neutral and is eventually selected again.
+		 */
+		public synchronized double getLatencyMs(double neutralMs) {
+
+			if (_latencyUpdatedNanos == 0) {
+				return neutralMs;
+			}
+
+			double halfLives =
+				(System.nanoTime() - _latencyUpdatedNanos) /
+				(double)_latencyHalfLifeNanos;
+
+			return neutralMs +
+				(_latencyMs - neutralMs) * Math.pow(0.5, halfLives);
+
+		}
+
+		private NodeStats(
+			String host, long maxInFlightNanos, long latencyHalfLifeNanos) {
+
+			_maxInFlightNanos = maxInFlightNanos;
+			_latencyHalfLifeNanos = latencyHalfLifeNanos;
+
+			_timer = Timer
+				.builder("openk9.search.client.node.latency")
+				.tags(Tags.of("node", host))
+				.register(Metrics.globalRegistry);
+
+			Metrics.gauge(
+				"openk9.search.client.node.in_flight",
+				Tags.of("node", host), this, NodeStats::getInFlight);
+
+		}
+
+		private void requestStarted(HttpContext context) {
+			_inFlight.put(context, System.nanoTime());
+		}
+
+		private void requestCompleted(HttpContext context) {
+
+			Long startNanos = _inFlight.remove(context);
+
+			if (startNanos == null) {
+				return;
+			}
+
+			long now = System.nanoTime();
+
+			long elapsedNanos = now - startNanos;
+
+			_timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+			double elapsedMs = elapsedNanos / 1_000_000d;
+
+			synchronized (this) {
+
+				double latencyMs = getLatencyMs(elapsedMs);
+
+				_latencyMs = latencyMs + _ALPHA * (elapsedMs - latencyMs);
+
+				_latencyUpdatedNanos = now;
+
+			}
+
+		}
+
+		/**
+		 * Failures that carry a response already went through
+		 * {@link #requestCompleted(HttpContext)}; the ones left are exchanges
+		 * whose connection was closed under them.
+		 */
+		private void requestFailed() {
+			_inFlight.keySet().removeIf(NodeStats::_isAborted);
+		}
+
+		private static boolean _isAborted(HttpContext context) {
+
+			Object connection = context.getAttribute(
+				HttpCoreContext.HTTP_CONNECTION);
+
+			return connection instanceof HttpConnection &&
+				!((HttpConnection)connection).isOpen();
+
+		}
+
+		private void remove() {
+			Metrics.globalRegistry.remove(_timer);
+			Metrics.globalRegistry.find("openk9.search.client.node.in_flight")
+				.tags(_timer.getId().getTags())
+				.meters()
+				.forEach(Metrics.globalRegistry::remove);
+		}
+
+		private final Map<HttpContext, Long> _inFlight =
+			new ConcurrentHashMap<>();
+		private double _latencyMs;
+		private long _latencyUpdatedNanos;
+		private final long _maxInFlightNanos;
+		private final long _latencyHalfLifeNanos;
+		private final Timer _timer;
+
+		private static final double _ALPHA = 0.2;
+
+	}
+
+	private final long _maxInFlightNanos;
+
+	private final long _latencyHalfLifeNanos;
+
+	private final Map<String, NodeStats> _nodeStatsMap =
+		new ConcurrentHashMap<>();
+
+}
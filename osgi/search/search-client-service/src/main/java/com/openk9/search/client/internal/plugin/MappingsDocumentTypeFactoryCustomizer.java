@@ -23,9 +23,13 @@ import com.openk9.json.api.ObjectNode;
 import com.openk9.search.client.api.componenttemplate.ComponentTemplateProvider;
 import com.openk9.search.client.api.mapping.Field;
 import com.openk9.search.client.api.mapping.FieldType;
+import com.openk9.search.client.api.mapping.SuggestField;
 import com.openk9.search.client.internal.indextemplate.IndexTemplateService;
+import com.openk9.ingestion.driver.manager.api.DocumentType;
 import com.openk9.ingestion.driver.manager.api.DocumentTypeFactory.DefaultDocumentTypeFactory;
 import com.openk9.ingestion.driver.manager.api.DocumentTypeFactoryCustomizer;
+import com.openk9.ingestion.driver.manager.api.Highlight;
+import com.openk9.ingestion.driver.manager.api.SearchKeyword;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -37,6 +41,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -77,6 +83,27 @@ public class MappingsDocumentTypeFactoryCustomizer
 					})
 					.collect(Collectors.toList());
 
+				List<SearchKeyword> textKeywords = list
+					.stream()
+					.map(DefaultDocumentTypeFactory::getDocumentType)
+					.map(DocumentType::getSearchKeywords)
+					.filter(Objects::nonNull)
+					.flatMap(List::stream)
+					.filter(SearchKeyword::isText)
+					.collect(Collectors.toList());
+
+				Map<String, Highlight> textKeywordMap = textKeywords
+					.stream()
+					.collect(Collectors.toMap(
+						SearchKeyword::getKeyword, SearchKeyword::getHighlight,
+						(h1, h2) -> h1));
+
+				Set<String> suggestKeywords = textKeywords
+					.stream()
+					.filter(SearchKeyword::isSuggest)
+					.map(SearchKeyword::getKeyword)
+					.collect(Collectors.toSet());
+
 				Map<String, Object> objectNode = new HashMap<>();
 
 				for (Field parent : collect) {
@@ -85,10 +112,14 @@ public class MappingsDocumentTypeFactoryCustomizer
 
 					Map<String, Object> parentNodeWithName = fieldNode;
 
+					StringBuilder path = new StringBuilder(parent.getName());
+
 					Field child = parent.getChild();
 
 					while (child != Field.NIL) {
 
+						path.append('.').append(child.getName());
+
 						Map<String, Object> parentNode =(Map<String, Object>)
 							parentNodeWithName.get(parent.getName());
 
@@ -104,6 +135,45 @@ public class MappingsDocumentTypeFactoryCustomizer
 
 					}
 
+					Highlight highlight = textKeywordMap.get(path.toString());
+
+					if (parent.getFieldType() == FieldType.TEXT &&
+						highlight != null) {
+
+						Map<String, Object> leafNode = (Map<String, Object>)
+							parentNodeWithName.get(parent.getName());
+
+						highlight
+							.getHighlightType()
+							.getMappingOptions()
+							.forEach(leafNode::putIfAbsent);
+
+						if (suggestKeywords.contains(path.toString())) {
+
+							Map<String, Object> fields = new HashMap<>();
+
+							Object extraFields = leafNode.get("fields");
+
+							if (extraFields instanceof Map) {
+								fields.putAll((Map<String, Object>)extraFields);
+							}
+
+							fields.put(
+								SuggestField.SUBFIELD_NAME,
+								Map.of(
+									"type", FieldType.COMPLETION.getType(),
+									"contexts", List.of(
+										Map.of(
+											"name", SuggestField.CONTEXT_NAME,
+											"type", "category",
+											"path", SuggestField.CONTEXT_PATH))));
+
+							leafNode.put("fields", fields);
+
+						}
+
+					}
+
 					objectNode = _merge(objectNode, fieldNode);
 
 				}
@@ -22,13 +22,37 @@ import com.openk9.search.client.api.RestHighLevelClientProvider;
 import com.openk9.search.client.api.Search;
 import com.openk9.search.client.api.SearchRequestFactory;
 import com.openk9.search.client.api.util.SearchUtil;
+import com.openk9.search.client.internal.configuration.ElasticSearchConfiguration;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Cancellable;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.script.mustache.MultiSearchTemplateRequest;
+import org.elasticsearch.script.mustache.MultiSearchTemplateResponse;
+import org.elasticsearch.script.mustache.SearchTemplateRequest;
+import org.elasticsearch.script.mustache.SearchTemplateResponse;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 @Component(
@@ -37,6 +61,51 @@ import java.util.function.Function;
 )
 public class SearchImpl implements Search {
 
+	@Activate
+	public void activate() {
+
+		if (!_elasticSearchConfiguration.searchBatchEnabled()) {
+			return;
+		}
+
+		_batchMany = Sinks.many().unicast().onBackpressureBuffer();
+
+		_batchDisposable = _batchMany
+			.asFlux()
+			.bufferTimeout(
+				_elasticSearchConfiguration.searchBatchMaxSize(),
+				Duration.ofMillis(
+					_elasticSearchConfiguration.searchBatchMaxTime()))
+			.subscribe(
+				this::_multiSearch,
+				throwable -> _log.error("search batching stopped", throwable));
+
+	}
+
+	@Modified
+	public void modified() {
+		deactivate();
+		activate();
+	}
+
+	@Deactivate
+	public void deactivate() {
+
+		Sinks.Many<PendingSearch> batchMany = _batchMany;
+
+		_batchMany = null;
+
+		if (batchMany != null) {
+			batchMany.emitComplete(_RETRY_NON_SERIALIZED);
+		}
+
+		if (_batchDisposable != null) {
+			_batchDisposable.dispose();
+			_batchDisposable = null;
+		}
+
+	}
+
 	@Override
 	public Mono<SearchResponse> search(SearchRequest searchRequest) {
 
@@ -44,10 +113,33 @@ public class SearchImpl implements Search {
 			return Mono.just(SearchUtil.EMPTY_SEARCH_RESPONSE);
 		}
 
-		return Mono.create(
-			sink -> _restHighLevelClientProvider.get().searchAsync(
-				searchRequest, RequestOptions.DEFAULT,
-				new ReactorActionListener<>(sink)));
+		Sinks.Many<PendingSearch> batchMany = _batchMany;
+
+		Mono<SearchResponse> searchResponse;
+
+		if (batchMany == null || searchRequest.scroll() != null) {
+			searchResponse = Mono.create(sink -> {
+
+				Cancellable cancellable =
+					_restHighLevelClientProvider.get().searchAsync(
+						searchRequest, RequestOptions.DEFAULT,
+						new ReactorActionListener<>(sink));
+
+				sink.onCancel(cancellable::cancel);
+
+			});
+		}
+		else {
+			searchResponse = Mono.create(
+				sink -> _enqueue(
+					batchMany, new PendingSearch(searchRequest, null, sink)));
+		}
+
+		SearchSourceBuilder source = searchRequest.source();
+
+		return _withDeadline(
+			searchResponse, source != null ? source.timeout() : null);
+
 	}
 
 	@Override
@@ -57,12 +149,330 @@ public class SearchImpl implements Search {
 		return Mono.defer(() -> search(function.apply(_searchRequestFactory)));
 	}
 
+	@Override
+	public Mono<SearchResponse> searchTemplate(
+		SearchTemplateRequest searchTemplateRequest) {
+
+		Sinks.Many<PendingSearch> batchMany = _batchMany;
+
+		Mono<SearchResponse> searchResponse;
+
+		if (batchMany == null) {
+			searchResponse = Mono.create(sink -> {
+
+				Cancellable cancellable =
+					_restHighLevelClientProvider.get().searchTemplateAsync(
+						searchTemplateRequest, RequestOptions.DEFAULT,
+						_searchTemplateListener(sink));
+
+				sink.onCancel(cancellable::cancel);
+
+			});
+		}
+		else {
+			searchResponse = Mono.create(
+				sink -> _enqueue(
+					batchMany,
+					new PendingSearch(null, searchTemplateRequest, sink)));
+		}
+
+		Map<String, Object> scriptParams =
+			searchTemplateRequest.getScriptParams();
+
+		Object timeout = scriptParams != null
+			? scriptParams.get(_TIMEOUT_PARAM) : null;
+
+		if (timeout instanceof Collection) {
+			timeout = ((Collection<?>)timeout)
+				.stream()
+				.findFirst()
+				.orElse(null);
+		}
+
+		return _withDeadline(
+			searchResponse,
+			timeout != null
+				? TimeValue.parseTimeValue(
+					timeout.toString(), _TIMEOUT_PARAM)
+				: null);
+
+	}
+
+	@Override
+	public Mono<SearchResponse> searchTemplate(
+		Function<SearchRequestFactory, SearchTemplateRequest> function) {
+
+		return Mono.defer(
+			() -> searchTemplate(function.apply(_searchRequestFactory)));
+	}
+
+	private Mono<SearchResponse> _withDeadline(
+		Mono<SearchResponse> searchResponse, TimeValue timeout) {
+
+		if (timeout == null) {
+			return searchResponse;
+		}
+
+		return searchResponse.timeout(
+			Duration.ofMillis(
+				timeout.millis() +
+				_elasticSearchConfiguration.searchTimeoutGraceMs()));
+
+	}
+
+	private void _enqueue(
+		Sinks.Many<PendingSearch> batchMany, PendingSearch pendingSearch) {
+
+		pendingSearch.sink.onCancel(pendingSearch::cancel);
+
+		Sinks.EmitResult emitResult;
+
+		do {
+			emitResult = batchMany.tryEmitNext(pendingSearch);
+		}
+		while (emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+
+		if (emitResult.isFailure()) {
+			pendingSearch.sink.error(
+				new IllegalStateException(
+					"search batching is not available: " + emitResult));
+		}
+
+	}
+
+	private void _multiSearch(List<PendingSearch> pendingSearchList) {
+
+		List<PendingSearch> searchList = new ArrayList<>();
+
+		List<PendingSearch> searchTemplateList = new ArrayList<>();
+
+		for (PendingSearch pendingSearch : pendingSearchList) {
+			if (pendingSearch.cancelled) {
+				continue;
+			}
+
+			if (pendingSearch.searchRequest != null) {
+				searchList.add(pendingSearch);
+			}
+			else {
+				searchTemplateList.add(pendingSearch);
+			}
+		}
+
+		if (!searchList.isEmpty()) {
+			try {
+				_msearch(searchList);
+			}
+			catch (Exception e) {
+				_multiSearchFailed(searchList, e);
+			}
+		}
+
+		if (!searchTemplateList.isEmpty()) {
+			try {
+				_msearchTemplate(searchTemplateList);
+			}
+			catch (Exception e) {
+				_multiSearchFailed(searchTemplateList, e);
+			}
+		}
+
+	}
+
+	private void _msearch(List<PendingSearch> pendingSearchList) {
+
+		if (pendingSearchList.size() == 1) {
+
+			PendingSearch pendingSearch = pendingSearchList.get(0);
+
+			pendingSearch.setCancellable(
+				_restHighLevelClientProvider.get().searchAsync(
+					pendingSearch.searchRequest, RequestOptions.DEFAULT,
+					new ReactorActionListener<>(pendingSearch.sink)));
+
+			return;
+		}
+
+		MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+
+		for (PendingSearch pendingSearch : pendingSearchList) {
+			multiSearchRequest.add(pendingSearch.searchRequest);
+		}
+
+		Mono
+			.<MultiSearchResponse>create(
+				sink -> _restHighLevelClientProvider.get().msearchAsync(
+					multiSearchRequest, RequestOptions.DEFAULT,
+					new ReactorActionListener<>(sink)))
+			.subscribe(
+				multiSearchResponse -> {
+
+					MultiSearchResponse.Item[] items =
+						multiSearchResponse.getResponses();
+
+					for (int i = 0; i < pendingSearchList.size(); i++) {
+
+						MonoSink<SearchResponse> sink =
+							pendingSearchList.get(i).sink;
+
+						MultiSearchResponse.Item item = items[i];
+
+						if (item.isFailure()) {
+							sink.error(item.getFailure());
+						}
+						else {
+							sink.success(item.getResponse());
+						}
+
+					}
+
+				},
+				throwable -> _multiSearchFailed(pendingSearchList, throwable));
+
+	}
+
+	private void _msearchTemplate(List<PendingSearch> pendingSearchList) {
+
+		if (pendingSearchList.size() == 1) {
+
+			PendingSearch pendingSearch = pendingSearchList.get(0);
+
+			pendingSearch.setCancellable(
+				_restHighLevelClientProvider.get().searchTemplateAsync(
+					pendingSearch.searchTemplateRequest, RequestOptions.DEFAULT,
+					_searchTemplateListener(pendingSearch.sink)));
+
+			return;
+		}
+
+		MultiSearchTemplateRequest multiSearchTemplateRequest =
+			new MultiSearchTemplateRequest();
+
+		for (PendingSearch pendingSearch : pendingSearchList) {
+			multiSearchTemplateRequest.add(
+				pendingSearch.searchTemplateRequest);
+		}
+
+		Mono
+			.<MultiSearchTemplateResponse>create(
+				sink -> _restHighLevelClientProvider
+					.get()
+					.msearchTemplateAsync(
+						multiSearchTemplateRequest, RequestOptions.DEFAULT,
+						new ReactorActionListener<>(sink)))
+			.subscribe(
+				multiSearchTemplateResponse -> {
+
+					MultiSearchTemplateResponse.Item[] items =
+						multiSearchTemplateResponse.getResponses();
+
+					for (int i = 0; i < pendingSearchList.size(); i++) {
+
+						MonoSink<SearchResponse> sink =
+							pendingSearchList.get(i).sink;
+
+						MultiSearchTemplateResponse.Item item = items[i];
+
+						if (item.isFailure()) {
+							sink.error(item.getFailure());
+						}
+						else {
+							sink.success(item.getResponse().getResponse());
+						}
+
+					}
+
+				},
+				throwable -> _multiSearchFailed(pendingSearchList, throwable));
+
+	}
+
+	private void _multiSearchFailed(
+		List<PendingSearch> pendingSearchList, Throwable throwable) {
+
+		if (_log.isDebugEnabled()) {
+			_log.debug(
+				"msearch of " + pendingSearchList.size() +
+				" requests failed", throwable);
+		}
+
+		for (PendingSearch pendingSearch : pendingSearchList) {
+			pendingSearch.sink.error(throwable);
+		}
+
+	}
+
+	private static ActionListener<SearchTemplateResponse>
+		_searchTemplateListener(MonoSink<SearchResponse> sink) {
+
+		return ActionListener.wrap(
+			searchTemplateResponse -> sink.success(
+				searchTemplateResponse.getResponse()),
+			sink::error);
+	}
+
+	private static class PendingSearch {
+
+		private PendingSearch(
+			SearchRequest searchRequest,
+			SearchTemplateRequest searchTemplateRequest,
+			MonoSink<SearchResponse> sink) {
+
+			this.searchRequest = searchRequest;
+			this.searchTemplateRequest = searchTemplateRequest;
+			this.sink = sink;
+		}
+
+		private void cancel() {
+
+			cancelled = true;
+
+			Cancellable cancellable = this.cancellable;
+
+			if (cancellable != null) {
+				cancellable.cancel();
+			}
+
+		}
+
+		private void setCancellable(Cancellable cancellable) {
+
+			this.cancellable = cancellable;
+
+			if (cancelled) {
+				cancellable.cancel();
+			}
+
+		}
+
+		private final SearchRequest searchRequest;
+		private final SearchTemplateRequest searchTemplateRequest;
+		private final MonoSink<SearchResponse> sink;
+		private volatile boolean cancelled;
+		private volatile Cancellable cancellable;
+
+	}
+
+	private volatile Sinks.Many<PendingSearch> _batchMany;
+
+	private Disposable _batchDisposable;
+
 	@Reference
 	private RestHighLevelClientProvider _restHighLevelClientProvider;
 
 	@Reference
 	private SearchRequestFactory _searchRequestFactory;
 
-	private static final Object _EMPTY_OBJECT = new Object();
+	@Reference
+	private ElasticSearchConfiguration _elasticSearchConfiguration;
+
+	private static final Sinks.EmitFailureHandler _RETRY_NON_SERIALIZED =
+		(signalType, emitResult) ->
+			emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED;
+
+	private static final String _TIMEOUT_PARAM = "timeout";
+
+	private static final Logger _log = LoggerFactory.getLogger(
+		SearchImpl.class);
 
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal.searchtemplate;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+abstract class BaseSearchTemplateInitializer {
+
+	public abstract String searchTemplatePath();
+
+	public abstract String searchTemplateId();
+
+	protected void activate(BundleContext bundleContext) {
+
+		Bundle bundle = bundleContext.getBundle();
+
+		String templatePosition = searchTemplatePath();
+
+		URL resource = bundle.getResource(templatePosition);
+
+		if (resource == null) {
+			throw new RuntimeException(
+				templatePosition + " not found in bundle: "
+				+ bundle.getSymbolicName());
+		}
+
+		try (InputStream is = resource.openStream()) {
+
+			_searchTemplateService.createOrUpdateSearchTemplate(
+				searchTemplateId(),
+				new String(is.readAllBytes(), StandardCharsets.UTF_8));
+
+		}
+		catch (IOException exception) {
+			throw new RuntimeException(exception);
+		}
+
+	}
+
+	protected void setSearchTemplateService(
+		SearchTemplateService searchTemplateService) {
+		_searchTemplateService = searchTemplateService;
+	}
+
+	private SearchTemplateService _searchTemplateService;
+
+}
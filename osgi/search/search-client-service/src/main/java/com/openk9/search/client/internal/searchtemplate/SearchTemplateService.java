@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal.searchtemplate;
+
+import com.openk9.search.client.api.RestHighLevelClientProvider;
+import org.elasticsearch.action.admin.cluster.storedscripts.PutStoredScriptRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+@Component(immediate = true, service = SearchTemplateService.class)
+public class SearchTemplateService {
+
+	public void createOrUpdateSearchTemplate(
+		String searchTemplateId, String source) {
+
+		try {
+
+			XContentBuilder builder = XContentFactory
+				.jsonBuilder()
+				.startObject()
+				.startObject("script")
+				.field("lang", "mustache")
+				.field("source", source)
+				.endObject()
+				.endObject();
+
+			PutStoredScriptRequest putStoredScriptRequest =
+				new PutStoredScriptRequest()
+					.id(searchTemplateId)
+					.content(BytesReference.bytes(builder), XContentType.JSON);
+
+			_restHighLevelClientProvider.get().putScript(
+				putStoredScriptRequest, RequestOptions.DEFAULT);
+
+		}
+		catch (IOException e) {
+			if (_log.isErrorEnabled()) {
+				_log.error(e.getMessage(), e);
+			}
+		}
+
+	}
+
+	@Reference
+	private RestHighLevelClientProvider _restHighLevelClientProvider;
+
+	private static final Logger _log = LoggerFactory.getLogger(
+		SearchTemplateService.class);
+
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal.wal;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class WriteAheadLog implements AutoCloseable {
+
+	public static WriteAheadLog open(Path directory, int segmentBytes)
+		throws IOException {
+
+		Files.createDirectories(directory);
+
+		WriteAheadLog writeAheadLog =
+			new WriteAheadLog(directory, segmentBytes);
+
+		try (Stream<Path> paths = Files.list(directory)) {
+
+			for (Path path : paths
+					.filter(p -> p.getFileName().toString().endsWith(_EXTENSION))
+					.sorted()
+					.collect(Collectors.toList())) {
+
+				writeAheadLog._segments.add(Segment.recover(path));
+
+			}
+
+		}
+
+		if (writeAheadLog._segments.isEmpty()) {
+			writeAheadLog._roll(0);
+		}
+
+		writeAheadLog._openCommit();
+
+		return writeAheadLog;
+
+	}
+
+	public synchronized void append(DocWriteRequest<?> request) {
+
+		byte[] bytes = _serialize(request);
+
+		Segment segment = _segments.get(_segments.size() - 1);
+
+		if (segment.remaining() < bytes.length + Integer.BYTES) {
+			try {
+				segment = _roll(bytes.length + Integer.BYTES);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		segment.write(bytes);
+
+	}
+
+	public synchronized DocWriteRequest<?> poll() {
+
+		if (!_requeued.isEmpty()) {
+			return _requeued.poll();
+		}
+
+		while (true) {
+
+			Segment segment = _segments.get(_readSegment);
+
+			if (_readPosition < segment.writePosition) {
+
+				int length = segment.buffer.getInt(_readPosition);
+
+				byte[] bytes = new byte[length];
+
+				ByteBuffer duplicate = segment.buffer.duplicate();
+
+				duplicate.position(_readPosition + Integer.BYTES);
+				duplicate.get(bytes);
+
+				int position = _readPosition;
+
+				_readPosition += Integer.BYTES + length;
+
+				try {
+
+					DocWriteRequest<?> request = _deserialize(bytes);
+
+					segment.inFlight.add(position);
+
+					_inFlight.put(request, new Record(segment, position));
+
+					return request;
+
+				}
+				catch (IOException | RuntimeException e) {
+					_log.error(
+						"skipping unreadable record in " + segment.path, e);
+				}
+
+			}
+			else if (_readSegment < _segments.size() - 1) {
+				_readSegment++;
+				_readPosition = 0;
+				_deleteCompleted();
+			}
+			else {
+				return null;
+			}
+
+		}
+
+	}
+
+	public synchronized void requeue(DocWriteRequest<?> request) {
+		if (_inFlight.containsKey(request)) {
+			_requeued.add(request);
+		}
+	}
+
+	public synchronized void complete(DocWriteRequest<?> request) {
+
+		Record record = _inFlight.remove(request);
+
+		if (record != null) {
+			record.segment.inFlight.remove(record.position);
+			_deleteCompleted();
+			_commit();
+		}
+
+	}
+
+	@Override
+	public synchronized void close() {
+
+		for (Segment segment : _segments) {
+			segment.buffer.force();
+		}
+
+		_commitBuffer.force();
+
+	}
+
+	private WriteAheadLog(Path directory, int segmentBytes) {
+		_directory = directory;
+		_segmentBytes = segmentBytes;
+	}
+
+	private Segment _roll(int minBytes) throws IOException {
+
+		long id = 0;
+
+		if (!_segments.isEmpty()) {
+
+			Segment last = _segments.get(_segments.size() - 1);
+
+			last.buffer.force();
+
+			id = last.id + 1;
+
+		}
+
+		Segment segment = Segment.create(
+			_directory.resolve(String.format("%020d%s", id, _EXTENSION)), id,
+			Math.max(_segmentBytes, minBytes + Integer.BYTES));
+
+		_segments.add(segment);
+
+		return segment;
+
+	}
+
+	private void _openCommit() throws IOException {
+
+		Path path = _directory.resolve(_COMMIT_FILE_NAME);
+
+		boolean exists = Files.exists(path);
+
+		try (FileChannel channel = FileChannel.open(
+				path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+
+			_commitBuffer = channel.map(
+				FileChannel.MapMode.READ_WRITE, 0, Long.BYTES + Integer.BYTES);
+		}
+
+		if (!exists) {
+			return;
+		}
+
+		long segmentId = _commitBuffer.getLong(0);
+		int position = _commitBuffer.getInt(Long.BYTES);
+
+		Iterator<Segment> iterator = _segments.iterator();
+
+		while (_segments.size() > 1 && iterator.hasNext()) {
+
+			Segment segment = iterator.next();
+
+			if (segment.id >= segmentId) {
+				break;
+			}
+
+			iterator.remove();
+
+			Files.deleteIfExists(segment.path);
+
+		}
+
+		Segment first = _segments.get(0);
+
+		if (first.id == segmentId && position <= first.writePosition) {
+			_readPosition = position;
+		}
+
+	}
+
+	private void _commit() {
+
+		Segment first = _segments.get(0);
+
+		int position;
+
+		if (!first.inFlight.isEmpty()) {
+			position = first.inFlight.first();
+		}
+		else if (_readSegment == 0) {
+			position = _readPosition;
+		}
+		else {
+			position = first.writePosition;
+		}
+
+		_commitBuffer.putLong(0, first.id);
+		_commitBuffer.putInt(Long.BYTES, position);
+
+	}
+
+	private void _deleteCompleted() {
+
+		Iterator<Segment> iterator = _segments.iterator();
+
+		while (_readSegment > 0 && iterator.hasNext()) {
+
+			Segment segment = iterator.next();
+
+			if (!segment.inFlight.isEmpty()) {
+				return;
+			}
+
+			iterator.remove();
+
+			_readSegment--;
+
+			try {
+				Files.deleteIfExists(segment.path);
+			}
+			catch (IOException e) {
+				_log.error("cannot delete segment " + segment.path, e);
+			}
+
+		}
+
+	}
+
+	private static byte[] _serialize(DocWriteRequest<?> request) {
+
+		try (BytesStreamOutput out = new BytesStreamOutput()) {
+
+			out.writeByte(request.opType().getId());
+
+			((Writeable)request).writeTo(out);
+
+			return BytesReference.toBytes(out.bytes());
+
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+	}
+
+	private static DocWriteRequest<?> _deserialize(byte[] bytes)
+		throws IOException {
+
+		try (StreamInput in = StreamInput.wrap(bytes)) {
+
+			DocWriteRequest.OpType opType =
+				DocWriteRequest.OpType.fromId(in.readByte());
+
+			switch (opType) {
+				case INDEX:
+				case CREATE:
+					return new IndexRequest(in);
+				case UPDATE:
+					return new UpdateRequest(in);
+				default:
+					return new DeleteRequest(in);
+			}
+
+		}
+
+	}
+
+	private static class Segment {
+
+		private static Segment create(Path path, long id, int size)
+			throws IOException {
+
+			try (FileChannel channel = FileChannel.open(
+					path, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+				return new Segment(
+					path, id,
+					channel.map(FileChannel.MapMode.READ_WRITE, 0, size), 0);
+			}
+
+		}
+
+		private static Segment recover(Path path) throws IOException {
+
+			String fileName = path.getFileName().toString();
+
+			long id = Long.parseLong(
+				fileName.substring(0, fileName.length() - _EXTENSION.length()));
+
+			try (FileChannel channel = FileChannel.open(
+					path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+				MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_WRITE, 0, channel.size());
+
+				int position = 0;
+
+				while (position + Integer.BYTES <= buffer.capacity()) {
+
+					int length = buffer.getInt(position);
+
+					if (length <= 0 ||
+						position + Integer.BYTES + length > buffer.capacity()) {
+
+						break;
+					}
+
+					position += Integer.BYTES + length;
+
+				}
+
+				return new Segment(path, id, buffer, position);
+
+			}
+
+		}
+
+		private Segment(
+			Path path, long id, MappedByteBuffer buffer, int writePosition) {
+
+			this.path = path;
+			this.id = id;
+			this.buffer = buffer;
+			this.writePosition = writePosition;
+		}
+
+		private int remaining() {
+			return buffer.capacity() - writePosition;
+		}
+
+		private void write(byte[] bytes) {
+
+			ByteBuffer duplicate = buffer.duplicate();
+
+			duplicate.position(writePosition + Integer.BYTES);
+			duplicate.put(bytes);
+
+			buffer.putInt(writePosition, bytes.length);
+
+			writePosition += Integer.BYTES + bytes.length;
+
+		}
+
+		private final Path path;
+		private final long id;
+		private final MappedByteBuffer buffer;
+		private int writePosition;
+		private final SortedSet<Integer> inFlight = new TreeSet<>();
+
+	}
+
+	private static class Record {
+
+		private Record(Segment segment, int position) {
+			this.segment = segment;
+			this.position = position;
+		}
+
+		private final Segment segment;
+		private final int position;
+
+	}
+
+	private final Path _directory;
+	private final int _segmentBytes;
+
+	private final List<Segment> _segments = new ArrayList<>();
+	private final Map<DocWriteRequest<?>, Record> _inFlight =
+		new IdentityHashMap<>();
+	private final Queue<DocWriteRequest<?>> _requeued = new ArrayDeque<>();
+
+	private MappedByteBuffer _commitBuffer;
+
+	private int _readSegment;
+	private int _readPosition;
+
+	private static final String _COMMIT_FILE_NAME = "commit";
+
+	private static final String _EXTENSION = ".wal";
+
+	private static final Logger _log = LoggerFactory.getLogger(
+		WriteAheadLog.class);
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BulkFlowControlTest {
+
+	@Test
+	public void testHalveOnSlowOrFailedBulk() {
+
+		BulkFlowControl bulkFlowControl = new BulkFlowControl(
+			8, 1_000, 16_000, 100, 1_000_000);
+
+		assertEquals(8, bulkFlowControl.getConcurrencyLimit());
+		assertEquals(16_000, bulkFlowControl.getBulkBytes());
+
+		bulkFlowControl.acquireBulk().block();
+		bulkFlowControl.releaseBulk(500, false);
+
+		assertEquals(4, bulkFlowControl.getConcurrencyLimit());
+		assertEquals(8_000, bulkFlowControl.getBulkBytes());
+
+		bulkFlowControl.acquireBulk().block();
+		bulkFlowControl.releaseBulk(10, true);
+
+		assertEquals(2, bulkFlowControl.getConcurrencyLimit());
+		assertEquals(4_000, bulkFlowControl.getBulkBytes());
+
+		for (int i = 0; i < 5; i++) {
+			bulkFlowControl.acquireBulk().block();
+			bulkFlowControl.releaseBulk(500, false);
+		}
+
+		assertEquals(1, bulkFlowControl.getConcurrencyLimit());
+		assertEquals(1_000, bulkFlowControl.getBulkBytes());
+
+	}
+
+	@Test
+	public void testGrowOnFastBulk() {
+
+		BulkFlowControl bulkFlowControl = new BulkFlowControl(
+			4, 1_000, 2_000, 100, 1_000_000);
+
+		bulkFlowControl.acquireBulk().block();
+		bulkFlowControl.releaseBulk(500, false);
+
+		assertEquals(2, bulkFlowControl.getConcurrencyLimit());
+		assertEquals(1_000, bulkFlowControl.getBulkBytes());
+
+		bulkFlowControl.acquireBulk().block();
+		bulkFlowControl.releaseBulk(10, false);
+
+		assertEquals(3, bulkFlowControl.getConcurrencyLimit());
+		assertEquals(1_101, bulkFlowControl.getBulkBytes());
+
+		for (int i = 0; i < 20; i++) {
+			bulkFlowControl.acquireBulk().block();
+			bulkFlowControl.releaseBulk(10, false);
+		}
+
+		assertEquals(4, bulkFlowControl.getConcurrencyLimit());
+		assertEquals(2_000, bulkFlowControl.getBulkBytes());
+
+	}
+
+	@Test
+	public void testAcquireWaitsForRelease() {
+
+		BulkFlowControl bulkFlowControl = new BulkFlowControl(
+			1, 1_000, 2_000, 100, 1_000_000);
+
+		bulkFlowControl.acquireBulk().block();
+
+		CompletableFuture<Void> second =
+			bulkFlowControl.acquireBulk().toFuture();
+
+		assertFalse(second.isDone());
+
+		bulkFlowControl.releaseBulk(10, false);
+
+		assertTrue(second.isDone());
+
+	}
+
+	@Test
+	public void testAwaitPendingWaitsBelowMax() {
+
+		BulkFlowControl bulkFlowControl = new BulkFlowControl(
+			1, 1_000, 2_000, 100, 100);
+
+		bulkFlowControl.awaitPending(150).block();
+
+		assertFalse(bulkFlowControl.hasPendingCapacity());
+
+		CompletableFuture<Void> waiting =
+			bulkFlowControl.awaitPending(10).toFuture();
+
+		assertFalse(waiting.isDone());
+
+		bulkFlowControl.removePending(150);
+
+		assertTrue(waiting.isDone());
+		assertEquals(10, bulkFlowControl.getPendingBytes());
+
+	}
+
+	@Test
+	public void testCancelledWaiterReleasesNothing() {
+
+		BulkFlowControl bulkFlowControl = new BulkFlowControl(
+			1, 1_000, 2_000, 100, 100);
+
+		bulkFlowControl.awaitPending(150).block();
+
+		Disposable disposable = bulkFlowControl.awaitPending(10).subscribe();
+
+		disposable.dispose();
+
+		bulkFlowControl.removePending(150);
+
+		assertEquals(0, bulkFlowControl.getPendingBytes());
+
+	}
+
+}
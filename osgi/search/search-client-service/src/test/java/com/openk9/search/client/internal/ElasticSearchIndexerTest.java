@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ElasticSearchIndexerTest {
+
+	@Test
+	public void testSplitByBytes() {
+
+		DocWriteRequest<?> first = _indexRequest(36);
+		DocWriteRequest<?> second = _indexRequest(36);
+		DocWriteRequest<?> third = _indexRequest(36);
+
+		List<List<DocWriteRequest<?>>> bulks =
+			ElasticSearchIndexer.splitByBytes(
+				List.of(first, second, third), 250);
+
+		assertEquals(List.of(List.of(first, second), List.of(third)), bulks);
+
+	}
+
+	@Test
+	public void testOversizedRequestGetsItsOwnBulk() {
+
+		DocWriteRequest<?> small = new DeleteRequest("1-web-data", "1");
+		DocWriteRequest<?> large = _indexRequest(1_000);
+
+		List<List<DocWriteRequest<?>>> bulks =
+			ElasticSearchIndexer.splitByBytes(
+				List.of(small, large, small), 200);
+
+		assertEquals(
+			List.of(List.of(small), List.of(large), List.of(small)), bulks);
+
+	}
+
+	@Test
+	public void testSplitEmptyList() {
+		assertTrue(
+			ElasticSearchIndexer
+				.splitByBytes(Collections.emptyList(), 100)
+				.isEmpty());
+	}
+
+	private static IndexRequest _indexRequest(int sourceBytes) {
+
+		String source = "{\"a\":\"" + "x".repeat(sourceBytes - 8) + "\"}";
+
+		return new IndexRequest("1-web-data").source(
+			source, XContentType.JSON);
+
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RetryBudgetTest {
+
+	@Test
+	public void testStartFull() {
+
+		RetryBudget retryBudget = new RetryBudget(0.5, 2);
+
+		assertTrue(retryBudget.tryWithdraw());
+		assertTrue(retryBudget.tryWithdraw());
+		assertFalse(retryBudget.tryWithdraw());
+
+	}
+
+	@Test
+	public void testDepositRatioOfRequests() {
+
+		RetryBudget retryBudget = new RetryBudget(0.5, 2);
+
+		_drain(retryBudget);
+
+		retryBudget.deposit(1);
+
+		assertFalse(retryBudget.tryWithdraw());
+
+		retryBudget.deposit(1);
+
+		assertTrue(retryBudget.tryWithdraw());
+		assertFalse(retryBudget.tryWithdraw());
+
+	}
+
+	@Test
+	public void testDepositCappedAtMaxTokens() {
+
+		RetryBudget retryBudget = new RetryBudget(0.5, 2);
+
+		_drain(retryBudget);
+
+		retryBudget.deposit(100);
+
+		assertTrue(retryBudget.tryWithdraw());
+		assertTrue(retryBudget.tryWithdraw());
+		assertFalse(retryBudget.tryWithdraw());
+
+	}
+
+	private static void _drain(RetryBudget retryBudget) {
+		while (retryBudget.tryWithdraw()) {
+		}
+	}
+
+}
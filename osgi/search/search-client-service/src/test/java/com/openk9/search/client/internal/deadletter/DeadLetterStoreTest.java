@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal.deadletter;
+
+import com.openk9.json.internal.JsonFactoryImpl;
+import com.openk9.json.internal.ObjectMapperProvider;
+import com.openk9.search.client.internal.configuration.ElasticSearchConfiguration;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeadLetterStoreTest {
+
+	@BeforeEach
+	public void setUp() throws ReflectiveOperationException {
+
+		ObjectMapperProvider objectMapperProvider = new ObjectMapperProvider();
+
+		objectMapperProvider.activate();
+
+		JsonFactoryImpl jsonFactory = new JsonFactoryImpl();
+
+		_setField(jsonFactory, "_objectMapperProvider", objectMapperProvider);
+
+		_deadLetterStore = new DeadLetterStore();
+
+		_setField(_deadLetterStore, "_jsonFactory", jsonFactory);
+		_setField(
+			_deadLetterStore, "_elasticSearchConfiguration",
+			new ElasticSearchConfiguration() {
+
+				@Override
+				public String deadLetterPath() {
+					return _directory.toString();
+				}
+
+			});
+
+	}
+
+	@Test
+	public void testRoundTrip() {
+
+		_store(
+			new IndexRequest("1-web-data")
+				.id("a")
+				.routing("r")
+				.source(Map.of("title", "first")));
+		_store(
+			new UpdateRequest("1-web-data", "b")
+				.doc(Map.of("title", "second"))
+				.docAsUpsert(true));
+		_store(new DeleteRequest("2-web-data", "c"));
+
+		List<DocWriteRequest<?>> requests =
+			_deadLetterStore.drain("1-").collectList().block();
+
+		assertEquals(2, requests.size());
+
+		IndexRequest indexRequest = (IndexRequest)requests.get(0);
+
+		assertEquals("1-web-data", indexRequest.index());
+		assertEquals("a", indexRequest.id());
+		assertEquals("r", indexRequest.routing());
+		assertEquals(
+			Map.of("title", "first"), indexRequest.sourceAsMap());
+
+		UpdateRequest updateRequest = (UpdateRequest)requests.get(1);
+
+		assertEquals("b", updateRequest.id());
+		assertTrue(updateRequest.docAsUpsert());
+		assertEquals(
+			Map.of("title", "second"), updateRequest.doc().sourceAsMap());
+
+		assertFalse(Files.exists(_directory.resolve("1-web-data.ndjson")));
+		assertTrue(Files.exists(_directory.resolve("2-web-data.ndjson")));
+
+		assertTrue(_deadLetterStore.drain("1-").collectList().block().isEmpty());
+
+		DeleteRequest deleteRequest = (DeleteRequest)_deadLetterStore
+			.drain("2-")
+			.blockFirst();
+
+		assertEquals("c", deleteRequest.id());
+
+	}
+
+	@Test
+	public void testSkipMalformedLines() throws IOException {
+
+		_store(new DeleteRequest("1-web-data", "a"));
+
+		Files.write(
+			_directory.resolve("1-web-data.ndjson"),
+			"not json\n".getBytes(StandardCharsets.UTF_8),
+			StandardOpenOption.APPEND);
+
+		_store(new DeleteRequest("1-web-data", "b"));
+
+		List<DocWriteRequest<?>> requests =
+			_deadLetterStore.drain("1-").collectList().block();
+
+		assertEquals(2, requests.size());
+		assertEquals("a", requests.get(0).id());
+		assertEquals("b", requests.get(1).id());
+
+	}
+
+	@Test
+	public void testReplayFailureKeepsDeadLetters() {
+
+		_store(new DeleteRequest("1-web-data", "a"));
+		_store(new DeleteRequest("1-web-data", "b"));
+
+		assertThrows(
+			IllegalStateException.class,
+			() -> _deadLetterStore
+				.drain("1-")
+				.concatMap(request -> Mono.error(new IllegalStateException()))
+				.blockLast());
+
+		List<DocWriteRequest<?>> requests =
+			_deadLetterStore.drain("1-").collectList().block();
+
+		assertEquals(2, requests.size());
+
+	}
+
+	private void _store(DocWriteRequest<?> request) {
+		_deadLetterStore
+			.store(request, RestStatus.BAD_REQUEST, "rejected", 3)
+			.block();
+	}
+
+	private static void _setField(Object object, String name, Object value)
+		throws ReflectiveOperationException {
+
+		Field field = object.getClass().getDeclaredField(name);
+
+		field.setAccessible(true);
+
+		field.set(object, value);
+
+	}
+
+	@TempDir
+	Path _directory;
+
+	private DeadLetterStore _deadLetterStore;
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.client.internal.wal;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class WriteAheadLogTest {
+
+	@Test
+	public void testReplayUncompletedRecordAfterReopen(@TempDir Path directory)
+		throws IOException {
+
+		try (WriteAheadLog writeAheadLog = WriteAheadLog.open(
+				directory, _SEGMENT_BYTES)) {
+
+			writeAheadLog.append(_indexRequest("1"));
+			writeAheadLog.append(_indexRequest("2"));
+
+			DocWriteRequest<?> first = writeAheadLog.poll();
+			DocWriteRequest<?> second = writeAheadLog.poll();
+
+			assertEquals("1", first.id());
+			assertEquals("2", second.id());
+
+			writeAheadLog.complete(second);
+
+		}
+
+		try (WriteAheadLog writeAheadLog = WriteAheadLog.open(
+				directory, _SEGMENT_BYTES)) {
+
+			assertEquals("1", writeAheadLog.poll().id());
+
+		}
+
+	}
+
+	@Test
+	public void testSkipCompletedRecordsAfterReopen(@TempDir Path directory)
+		throws IOException {
+
+		try (WriteAheadLog writeAheadLog = WriteAheadLog.open(
+				directory, _SEGMENT_BYTES)) {
+
+			writeAheadLog.append(_indexRequest("1"));
+			writeAheadLog.append(_indexRequest("2"));
+			writeAheadLog.append(_indexRequest("3"));
+
+			DocWriteRequest<?> first = writeAheadLog.poll();
+			DocWriteRequest<?> second = writeAheadLog.poll();
+
+			writeAheadLog.complete(first);
+			writeAheadLog.complete(second);
+
+		}
+
+		try (WriteAheadLog writeAheadLog = WriteAheadLog.open(
+				directory, _SEGMENT_BYTES)) {
+
+			assertEquals("3", writeAheadLog.poll().id());
+			assertNull(writeAheadLog.poll());
+
+		}
+
+	}
+
+	@Test
+	public void testRequeuedRecordIsPolledFirst(@TempDir Path directory)
+		throws IOException {
+
+		try (WriteAheadLog writeAheadLog = WriteAheadLog.open(
+				directory, _SEGMENT_BYTES)) {
+
+			writeAheadLog.append(_indexRequest("1"));
+			writeAheadLog.append(_indexRequest("2"));
+
+			DocWriteRequest<?> first = writeAheadLog.poll();
+
+			writeAheadLog.requeue(first);
+
+			assertEquals("1", writeAheadLog.poll().id());
+			assertEquals("2", writeAheadLog.poll().id());
+
+		}
+
+	}
+
+	@Test
+	public void testRollSegments(@TempDir Path directory) throws IOException {
+
+		try (WriteAheadLog writeAheadLog = WriteAheadLog.open(directory, 256)) {
+
+			for (int i = 0; i < 10; i++) {
+				writeAheadLog.append(_indexRequest(String.valueOf(i)));
+			}
+
+			for (int i = 0; i < 10; i++) {
+
+				DocWriteRequest<?> request = writeAheadLog.poll();
+
+				assertEquals(String.valueOf(i), request.id());
+
+				writeAheadLog.complete(request);
+
+			}
+
+			assertNull(writeAheadLog.poll());
+
+		}
+
+	}
+
+	private static IndexRequest _indexRequest(String id) {
+		return new IndexRequest("1-web-data")
+			.id(id)
+			.source(Map.of("contentId", id));
+	}
+
+	private static final int _SEGMENT_BYTES = 1024 * 1024;
+
+}
@@ -24,6 +24,7 @@ import com.openk9.json.api.ArrayNode;
 import com.openk9.json.api.JsonFactory;
 import com.openk9.json.api.JsonNode;
 import com.openk9.json.api.ObjectNode;
+import com.openk9.search.client.api.EntityNameDictionary;
 import com.openk9.search.client.api.Index;
 import com.openk9.search.client.api.Search;
 import com.openk9.search.client.api.util.SearchUtil;
@@ -175,6 +176,11 @@ public abstract class BaseNerEnrichProcessor implements EnrichProcessor {
 		_search = search;
 	}
 
+	protected void setEntityNameDictionary(
+		EntityNameDictionary entityNameDictionary) {
+		_entityNameDictionary = entityNameDictionary;
+	}
+
 	private Mono<ObjectNode> _getEntityOrCreate(
 		long tenantId, JsonNode jsonNode) {
 
@@ -231,7 +237,12 @@ public abstract class BaseNerEnrichProcessor implements EnrichProcessor {
 					.must(_entityMapperProvider.query(fieldType, nameText));
 
 				return _getOrCreateDocument(
-					tenantId, bool, entityTypeObj, contextField);
+					tenantId, bool, entityTypeObj, contextField)
+					.doOnNext(ignore -> {
+						if (_entityNameDictionary != null) {
+							_entityNameDictionary.add(tenantId, nameText);
+						}
+					});
 			})
 			.reduce(this::_mergeObjectNode);
 
@@ -399,6 +410,8 @@ public abstract class BaseNerEnrichProcessor implements EnrichProcessor {
 
 	private JsonFactory _jsonFactory;
 
+	private EntityNameDictionary _entityNameDictionary;
+
 	private Search _search;
 
 	private Index _index;
@@ -21,6 +21,8 @@ import org.elasticsearch.index.query.QueryBuilder;
 
 public interface EntityMapper {
 
+	String PREFIX_SUBFIELD = "prefix";
+
 	String getType();
 
 	QueryBuilder query(String term);
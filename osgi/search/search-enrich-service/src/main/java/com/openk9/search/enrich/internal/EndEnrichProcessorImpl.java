@@ -54,8 +54,7 @@ public class EndEnrichProcessorImpl implements EndEnrichProcessor {
 		EnrichProcessorContext enrichProcessorContext) {
 
 		return _createDocWriterRequest(enrichProcessorContext)
-			.doOnNext(_indexBus::sendRequest)
-			.then();
+			.flatMap(_indexBus::offerRequest);
 
 	}
 
@@ -72,6 +71,8 @@ public class EndEnrichProcessorImpl implements EndEnrichProcessor {
 
 			String contentId = objectNode.get("contentId").asText();
 
+			long datasourceId = objectNode.get("datasourceId").asLong();
+
 			String pluginDriverName = enrichProcessorContext.
 				getPluginDriverName();
 
@@ -108,7 +109,8 @@ public class EndEnrichProcessorImpl implements EndEnrichProcessor {
 					Mono.fromSupplier(() -> {
 						IndexRequest indexRequest =
 							_docWriteRequestFactory.createDataIndexRequest(
-								tenantId, pluginDriverName);
+								tenantId, pluginDriverName,
+								datasourceId + "-" + contentId);
 						return indexRequest.source(
 							objectNode.toString(), XContentType.JSON);
 					}));
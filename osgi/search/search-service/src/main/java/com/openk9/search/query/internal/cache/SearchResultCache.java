@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.cache;
+
+import com.openk9.datasource.util.ActiveDatasources;
+import com.openk9.search.api.query.SearchRequest;
+import com.openk9.search.api.query.SearchToken;
+import com.openk9.search.client.api.TenantIndexGeneration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+@Component(
+	immediate = true,
+	service = SearchResultCache.class
+)
+public class SearchResultCache {
+
+	@interface Config {
+		boolean enabled() default false;
+		long maxSizeBytes() default 64 * 1024 * 1024;
+		long ttlMs() default 30_000;
+	}
+
+	@Activate
+	public void activate(Config config) {
+		_enabled = config.enabled();
+		_maxSizeBytes = config.maxSizeBytes();
+		_ttlMs = config.ttlMs();
+		_hitCounter = Metrics.counter(_METRIC_NAME, "result", "hit");
+		_missCounter = Metrics.counter(_METRIC_NAME, "result", "miss");
+	}
+
+	@Modified
+	public void modified(Config config) {
+		clear();
+		activate(config);
+	}
+
+	public Mono<byte[]> get(
+		ActiveDatasources activeDatasources, SearchRequest searchRequest,
+		Supplier<Mono<Tuple2<byte[], Boolean>>> supplier) {
+
+		if (!_enabled) {
+			return supplier.get().map(Tuple2::getT1);
+		}
+
+		long tenantId = activeDatasources.getTenantId();
+
+		String key = _canonicalKey(activeDatasources, searchRequest);
+
+		long generation = _tenantIndexGeneration.getGeneration(tenantId);
+
+		long now = System.currentTimeMillis();
+
+		CacheEntry cacheEntry;
+
+		synchronized (_cacheEntryMap) {
+
+			cacheEntry = _cacheEntryMap.get(key);
+
+			if (cacheEntry != null && (
+					cacheEntry.generation != generation ||
+					cacheEntry.expireTime < now)) {
+
+				_remove(key);
+
+				cacheEntry = null;
+			}
+
+		}
+
+		if (cacheEntry != null) {
+			_hitCounter.increment();
+			return Mono.just(cacheEntry.value);
+		}
+
+		_missCounter.increment();
+
+		return supplier
+			.get()
+			.doOnNext(t2 -> {
+
+				if (!t2.getT2()) {
+					return;
+				}
+
+				byte[] value = t2.getT1();
+
+				_put(
+					key, new CacheEntry(
+						value, generation, System.currentTimeMillis() + _ttlMs,
+						_estimateSize(key, value)));
+
+			})
+			.map(Tuple2::getT1);
+
+	}
+
+	public void clear() {
+		synchronized (_cacheEntryMap) {
+			_cacheEntryMap.clear();
+			_sizeBytes = 0;
+		}
+	}
+
+	private void _put(String key, CacheEntry cacheEntry) {
+
+		if (cacheEntry.size > _maxSizeBytes) {
+			return;
+		}
+
+		synchronized (_cacheEntryMap) {
+
+			_remove(key);
+
+			_cacheEntryMap.put(key, cacheEntry);
+
+			_sizeBytes += cacheEntry.size;
+
+			Iterator<CacheEntry> iterator =
+				_cacheEntryMap.values().iterator();
+
+			while (_sizeBytes > _maxSizeBytes && iterator.hasNext()) {
+				_sizeBytes -= iterator.next().size;
+				iterator.remove();
+			}
+
+		}
+
+	}
+
+	private void _remove(String key) {
+
+		CacheEntry cacheEntry = _cacheEntryMap.remove(key);
+
+		if (cacheEntry != null) {
+			_sizeBytes -= cacheEntry.size;
+		}
+
+	}
+
+	private String _canonicalKey(
+		ActiveDatasources activeDatasources, SearchRequest searchRequest) {
+
+		StringBuilder sb = new StringBuilder();
+
+		sb
+			.append(activeDatasources.getTenantId())
+			.append('|')
+			.append(Arrays.toString(activeDatasources.getDatasourceIds()))
+			.append('|')
+			.append(Arrays.toString(searchRequest.getRange()))
+			.append('|')
+			.append(Arrays.toString(searchRequest.getIncludes()))
+			.append('|')
+			.append(Arrays.toString(searchRequest.getExcludes()))
+			.append('|')
+			.append(Objects.toString(searchRequest.getCursor(), ""))
+			.append('|')
+			.append(Arrays.toString(searchRequest.getFacets()));
+
+		List<SearchToken> searchQuery = searchRequest.getSearchQuery();
+
+		if (searchQuery == null) {
+			return sb.toString();
+		}
+
+		searchQuery
+			.stream()
+			.map(this::_canonicalToken)
+			.sorted(Comparator.naturalOrder())
+			.forEach(token -> sb.append('|').append(token));
+
+		return sb.toString();
+
+	}
+
+	private String _canonicalToken(SearchToken searchToken) {
+
+		String[] values = searchToken.getValues();
+
+		if (values != null) {
+			values = values.clone();
+			Arrays.sort(values);
+		}
+
+		return Objects.toString(searchToken.getTokenType(), "") +
+			   ':' + Objects.toString(searchToken.getEntityType(), "") +
+			   ':' + Objects.toString(searchToken.getKeywordKey(), "") +
+			   ':' + Arrays.toString(values);
+
+	}
+
+	private long _estimateSize(String key, byte[] value) {
+		return key.length() * 2L + value.length + _ENTRY_OVERHEAD;
+	}
+
+	private static class CacheEntry {
+
+		private CacheEntry(
+			byte[] value, long generation, long expireTime, long size) {
+
+			this.value = value;
+			this.generation = generation;
+			this.expireTime = expireTime;
+			this.size = size;
+		}
+
+		private final byte[] value;
+		private final long generation;
+		private final long expireTime;
+		private final long size;
+
+	}
+
+	private boolean _enabled;
+
+	private long _maxSizeBytes;
+
+	private long _ttlMs;
+
+	private long _sizeBytes;
+
+	private Counter _hitCounter;
+
+	private Counter _missCounter;
+
+	private final Map<String, CacheEntry> _cacheEntryMap =
+		new LinkedHashMap<>(16, 0.75f, true);
+
+	@Reference
+	private TenantIndexGeneration _tenantIndexGeneration;
+
+	private static final long _ENTRY_OVERHEAD = 128;
+
+	private static final String _METRIC_NAME = "openk9.search.result.cache";
+
+}
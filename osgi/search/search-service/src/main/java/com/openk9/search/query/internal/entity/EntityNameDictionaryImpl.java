@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.entity;
+
+import com.openk9.search.client.api.EntityNameDictionary;
+import com.openk9.search.client.api.ReactorActionListener;
+import com.openk9.search.client.api.RestHighLevelClientProvider;
+import com.openk9.search.client.api.SearchRequestFactory;
+import io.micrometer.core.instrument.Metrics;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component(
+	immediate = true,
+	service = EntityNameDictionary.class
+)
+public class EntityNameDictionaryImpl implements EntityNameDictionary {
+
+	@interface Config {
+		long maxAgeMs() default 15 * 60 * 1000;
+		int loadBatchSize() default 1_000;
+	}
+
+	@Activate
+	public void activate(Config config) {
+		_maxAgeMs = config.maxAgeMs();
+		_loadBatchSize = config.loadBatchSize();
+		Metrics.gaugeMapSize(
+			"openk9.entity.name.dictionary.tenants", Collections.emptyList(),
+			_dictionaryMap);
+	}
+
+	@Modified
+	public void modified(Config config) {
+		_dictionaryMap.clear();
+		activate(config);
+	}
+
+	@Override
+	public void add(long tenantId, String name) {
+
+		if (name == null || name.isEmpty()) {
+			return;
+		}
+
+		TenantDictionary tenantDictionary = _dictionaryMap.get(tenantId);
+
+		if (tenantDictionary != null) {
+			tenantDictionary.add(name);
+		}
+
+	}
+
+	@Override
+	public Mono<List<String>> findByPrefix(
+		long tenantId, String prefix, int from, int size) {
+
+		return _getTenantDictionary(tenantId)
+			.map(tenantDictionary -> tenantDictionary.find(prefix, from, size));
+	}
+
+	@Override
+	public Mono<Long> countByPrefix(long tenantId, String prefix) {
+		return _getTenantDictionary(tenantId)
+			.map(tenantDictionary -> tenantDictionary.count(prefix));
+	}
+
+	private Mono<TenantDictionary> _getTenantDictionary(long tenantId) {
+
+		TenantDictionary tenantDictionary = _dictionaryMap.computeIfAbsent(
+			tenantId, key -> new TenantDictionary(_load(key)));
+
+		if (tenantDictionary.isExpired(_maxAgeMs)) {
+			_refresh(tenantId, tenantDictionary);
+		}
+
+		return tenantDictionary
+			.ready()
+			.doOnError(throwable -> _dictionaryMap.remove(
+				tenantId, tenantDictionary));
+
+	}
+
+	private void _refresh(long tenantId, TenantDictionary current) {
+
+		if (!current.startRefresh()) {
+			return;
+		}
+
+		TenantDictionary next = new TenantDictionary(_load(tenantId));
+
+		current.setNext(next);
+
+		next
+			.ready()
+			.subscribe(
+				loaded -> _dictionaryMap.replace(tenantId, current, loaded),
+				throwable -> {
+
+					if (_log.isWarnEnabled()) {
+						_log.warn(
+							"cannot refresh entity names for tenant " +
+							tenantId, throwable);
+					}
+
+					current.setNext(null);
+
+					current.refreshFailed();
+
+				});
+
+	}
+
+	private Mono<List<String>> _load(long tenantId) {
+
+		SearchRequest searchRequest =
+			_searchRequestFactory.createSearchRequestEntity(tenantId);
+
+		searchRequest.indicesOptions(IndicesOptions.lenientExpandOpen());
+
+		searchRequest.scroll(_SCROLL_KEEP_ALIVE);
+
+		searchRequest.source(
+			new SearchSourceBuilder()
+				.query(QueryBuilders.matchAllQuery())
+				.fetchSource(_NAME, null)
+				.sort("_doc", SortOrder.ASC)
+				.size(_loadBatchSize));
+
+		RestHighLevelClient restHighLevelClient =
+			_restHighLevelClientProvider.get();
+
+		return Mono
+			.<SearchResponse>create(sink -> restHighLevelClient.searchAsync(
+				searchRequest, RequestOptions.DEFAULT,
+				new ReactorActionListener<>(sink)))
+			.expand(searchResponse -> {
+
+				if (searchResponse.getHits().getHits().length == 0 ||
+					searchResponse.getScrollId() == null) {
+
+					return Mono.empty();
+				}
+
+				return Mono.<SearchResponse>create(
+					sink -> restHighLevelClient.scrollAsync(
+						new SearchScrollRequest(searchResponse.getScrollId())
+							.scroll(_SCROLL_KEEP_ALIVE),
+						RequestOptions.DEFAULT,
+						new ReactorActionListener<>(sink)));
+
+			})
+			.concatMap(searchResponse -> {
+
+				List<String> names = new ArrayList<>(
+					searchResponse.getHits().getHits().length);
+
+				for (SearchHit hit : searchResponse.getHits()) {
+
+					Object name = hit.getSourceAsMap().get(_NAME);
+
+					if (name != null) {
+						names.add(name.toString());
+					}
+
+				}
+
+				if (names.isEmpty()) {
+					return _clearScroll(
+						restHighLevelClient, searchResponse.getScrollId())
+						.thenReturn(names);
+				}
+
+				return Mono.just(names);
+
+			})
+			.reduce(new ArrayList<String>(), (all, names) -> {
+				all.addAll(names);
+				return all;
+			})
+			.map(all -> {
+
+				if (_log.isDebugEnabled()) {
+					_log.debug(
+						"loaded " + all.size() + " entity names for tenant " +
+						tenantId);
+				}
+
+				return all;
+
+			});
+
+	}
+
+	private Mono<ClearScrollResponse> _clearScroll(
+		RestHighLevelClient restHighLevelClient, String scrollId) {
+
+		if (scrollId == null) {
+			return Mono.empty();
+		}
+
+		ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+
+		clearScrollRequest.addScrollId(scrollId);
+
+		return Mono
+			.<ClearScrollResponse>create(
+				sink -> restHighLevelClient.clearScrollAsync(
+					clearScrollRequest, RequestOptions.DEFAULT,
+					new ReactorActionListener<>(sink)))
+			.onErrorResume(throwable -> Mono.empty());
+
+	}
+
+	static class TenantDictionary {
+
+		TenantDictionary(Mono<List<String>> loader) {
+			_createTime = System.currentTimeMillis();
+			_ready = loader
+				.map(names -> {
+					_loaded(names);
+					return this;
+				})
+				.cache();
+		}
+
+		Mono<TenantDictionary> ready() {
+			return _ready;
+		}
+
+		private boolean isExpired(long maxAgeMs) {
+			return maxAgeMs > 0 && _sortedKeys != null &&
+				   System.currentTimeMillis() - _createTime > maxAgeMs;
+		}
+
+		private boolean startRefresh() {
+			return _refreshing.compareAndSet(false, true);
+		}
+
+		private void refreshFailed() {
+			_refreshing.set(false);
+		}
+
+		private void setNext(TenantDictionary next) {
+			_next = next;
+		}
+
+		synchronized void add(String name) {
+
+			String key = _key(name);
+
+			if (_names.putIfAbsent(key, name) == null &&
+				(_sortedKeys == null ||
+				 Arrays.binarySearch(_sortedKeys, key) < 0)) {
+
+				_addedKeys.add(key);
+			}
+
+			TenantDictionary next = _next;
+
+			if (next != null) {
+				next.add(name);
+			}
+
+		}
+
+		private synchronized void _loaded(List<String> names) {
+
+			String[] keys = new String[names.size()];
+
+			for (int i = 0; i < keys.length; i++) {
+
+				String name = names.get(i);
+
+				keys[i] = _key(name);
+
+				_names.put(keys[i], name);
+
+			}
+
+			Arrays.sort(keys);
+
+			int distinct = 0;
+
+			for (String key : keys) {
+				if (distinct == 0 || !key.equals(keys[distinct - 1])) {
+					keys[distinct++] = key;
+				}
+			}
+
+			String[] sortedKeys = Arrays.copyOf(keys, distinct);
+
+			_sortedKeys = sortedKeys;
+
+			_addedKeys.removeIf(
+				key -> Arrays.binarySearch(sortedKeys, key) >= 0);
+
+		}
+
+		List<String> find(String prefix, int from, int size) {
+
+			Iterator<String> iterator = _range(prefix).values().iterator();
+
+			for (int i = 0; i < from && iterator.hasNext(); i++) {
+				iterator.next();
+			}
+
+			List<String> result = new ArrayList<>(Math.min(size, 1_024));
+
+			while (result.size() < size && iterator.hasNext()) {
+				result.add(iterator.next());
+			}
+
+			return result;
+
+		}
+
+		long count(String prefix) {
+
+			String[] sortedKeys = _sortedKeys;
+
+			if (sortedKeys == null) {
+				return _range(prefix).size();
+			}
+
+			if (prefix == null || prefix.isEmpty()) {
+				return sortedKeys.length + _addedKeys.size();
+			}
+
+			String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+
+			String upperBound = lowerPrefix + Character.MAX_VALUE;
+
+			int fromIndex = _insertionPoint(sortedKeys, lowerPrefix);
+
+			int toIndex = _insertionPoint(sortedKeys, upperBound);
+
+			return toIndex - fromIndex +
+				   _addedKeys.subSet(lowerPrefix, upperBound).size();
+
+		}
+
+		private static int _insertionPoint(String[] sortedKeys, String key) {
+
+			int index = Arrays.binarySearch(sortedKeys, key);
+
+			return index >= 0 ? index : -index - 1;
+
+		}
+
+		private NavigableMap<String, String> _range(String prefix) {
+
+			if (prefix == null || prefix.isEmpty()) {
+				return _names;
+			}
+
+			String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+
+			return _names.subMap(
+				lowerPrefix, true, lowerPrefix + Character.MAX_VALUE, false);
+
+		}
+
+		private static String _key(String name) {
+			return name.toLowerCase(Locale.ROOT) + '\u0000' + name;
+		}
+
+		private final long _createTime;
+		private final Mono<TenantDictionary> _ready;
+		private final ConcurrentSkipListMap<String, String> _names =
+			new ConcurrentSkipListMap<>();
+		private final ConcurrentSkipListSet<String> _addedKeys =
+			new ConcurrentSkipListSet<>();
+		private final AtomicBoolean _refreshing = new AtomicBoolean();
+		private volatile String[] _sortedKeys;
+		private volatile TenantDictionary _next;
+
+	}
+
+	private long _maxAgeMs;
+
+	private int _loadBatchSize;
+
+	private final Map<Long, TenantDictionary> _dictionaryMap =
+		new ConcurrentHashMap<>();
+
+	@Reference
+	private RestHighLevelClientProvider _restHighLevelClientProvider;
+
+	@Reference
+	private SearchRequestFactory _searchRequestFactory;
+
+	private static final String _NAME = "name";
+
+	private static final TimeValue _SCROLL_KEEP_ALIVE =
+		TimeValue.timeValueMinutes(1);
+
+	private static final Logger _log = LoggerFactory.getLogger(
+		EntityNameDictionaryImpl.class);
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.http;
+
+import com.openk9.datasource.model.Tenant;
+import com.openk9.datasource.repository.TenantRepository;
+import com.openk9.http.util.HttpResponseWriter;
+import com.openk9.http.util.HttpUtil;
+import com.openk9.http.web.Endpoint;
+import com.openk9.http.web.HttpHandler;
+import com.openk9.http.web.HttpRequest;
+import com.openk9.http.web.HttpResponse;
+import com.openk9.search.client.api.DeadLetterQueue;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Map;
+
+@Component(
+	immediate = true,
+	service = Endpoint.class,
+	property = {
+		"base.path=/v1/dead-letter"
+	}
+)
+public class DeadLetterReplayHTTPHandler implements HttpHandler {
+
+	@Override
+	public String getPath() {
+		return "/replay";
+	}
+
+	@Override
+	public int method() {
+		return HttpHandler.POST;
+	}
+
+	@Override
+	public Publisher<Void> apply(
+		HttpRequest httpRequest, HttpResponse httpResponse) {
+
+		String hostName = HttpUtil.getHostName(httpRequest);
+
+		Mono<Map<String, Long>> response = _tenantRepository
+			.findByVirtualHost(hostName)
+			.switchIfEmpty(
+				Mono.error(
+					() -> new RuntimeException(
+						"tenant not found for virtualhost: " + hostName)))
+			.map(Tenant::getTenantId)
+			.flatMap(_deadLetterQueue::replay)
+			.map(replayed -> Collections.singletonMap("replayed", replayed));
+
+		return _httpResponseWriter.write(httpResponse, response);
+
+	}
+
+	@Reference
+	private TenantRepository _tenantRepository;
+
+	@Reference
+	private DeadLetterQueue _deadLetterQueue;
+
+	@Reference
+	private HttpResponseWriter _httpResponseWriter;
+
+}
@@ -25,16 +25,8 @@ import com.openk9.http.web.Endpoint;
 import com.openk9.http.web.HttpHandler;
 import com.openk9.http.web.HttpRequest;
 import com.openk9.http.web.HttpResponse;
-import com.openk9.search.client.api.Search;
-import com.openk9.search.client.api.SearchRequestFactory;
+import com.openk9.search.client.api.EntityNameDictionary;
 import com.openk9.search.query.internal.response.Response;
-import org.apache.lucene.search.TotalHits;
-import org.elasticsearch.action.search.SearchRequest;
-import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.SearchHits;
-import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.reactivestreams.Publisher;
@@ -43,6 +35,7 @@ import reactor.core.publisher.Mono;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Component(
 	immediate = true,
@@ -69,6 +62,21 @@ public class EntityNameHTTPHandler implements HttpHandler {
 
 		String hostName = HttpUtil.getHostName(httpRequest);
 
+		String prefix = httpRequest.firstParam(_PREFIX).orElse("");
+
+		Integer from = _intParam(httpRequest, _FROM, 0);
+
+		Integer size = _intParam(httpRequest, _SIZE, _DEFAULT_SIZE);
+
+		if (from == null || size == null) {
+			return httpResponse.sendString(
+				Mono.just(
+					httpResponse.status(
+						400, "from and size must be non-negative integers")));
+		}
+
+		int pageSize = Math.min(size, _MAX_SIZE);
+
 		Mono<Response> response = _tenantRepository
 			.findByVirtualHost(hostName)
 			.switchIfEmpty(
@@ -76,64 +84,65 @@ public class EntityNameHTTPHandler implements HttpHandler {
 					() -> new RuntimeException(
 						"tenant not found for virtualhost: " + hostName)))
 			.map(Tenant::getTenantId)
-			.map(this::_toSearchRequest)
-			.flatMap(_search::search)
-			.map(SearchResponse::getHits)
-			.map(this::_searchHitToResponse);
+			.flatMap(tenantId -> Mono.zip(
+				_entityNameDictionary.findByPrefix(
+					tenantId, prefix, from, pageSize),
+				_entityNameDictionary.countByPrefix(tenantId, prefix)))
+			.map(t2 -> _toResponse(t2.getT1(), t2.getT2(), from));
 
 		return _httpResponseWriter.write(httpResponse, response);
 
 	}
 
-	private Response _searchHitToResponse(SearchHits searchHits) {
+	private Response _toResponse(List<String> names, long total, int from) {
 
-		SearchHit[] hits = searchHits.getHits();
+		List<Map<String, Object>> result = new ArrayList<>(names.size());
+
+		for (String name : names) {
+			result.add(Map.of(_NAME, name));
+		}
 
-		List<Map<String, Object>> result = new ArrayList<>(hits.length);
+		return new Response(result, total, from + names.size() >= total);
 
-		for (SearchHit hit : hits) {
+	}
 
-			Map<String, Object> sourceAsMap = hit.getSourceAsMap();
+	private Integer _intParam(
+		HttpRequest httpRequest, String key, int defaultValue) {
 
-			result.add(
-				Map.of("name", sourceAsMap.get("name"))
-			);
+		Optional<String> param = httpRequest.firstParam(key);
 
+		if (!param.isPresent()) {
+			return defaultValue;
 		}
 
-		TotalHits totalHits = searchHits.getTotalHits();
+		try {
+			int value = Integer.parseInt(param.get());
 
-		return new Response(
-			result,
-			totalHits.value,
-			totalHits.relation == TotalHits.Relation.EQUAL_TO
-		);
-	}
+			return value >= 0 ? value : null;
+		}
+		catch (NumberFormatException nfe) {
+			return null;
+		}
 
-	private SearchRequest _toSearchRequest(Long tenantId) {
+	}
 
-		SearchRequest searchRequest =
-			_searchRequestFactory.createSearchRequestEntity(tenantId);
+	private static final String _PREFIX = "prefix";
 
-		SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
+	private static final String _FROM = "from";
 
-		searchSourceBuilder.fetchSource("name", null);
+	private static final String _SIZE = "size";
 
-		searchSourceBuilder.query(QueryBuilders.matchAllQuery());
+	private static final String _NAME = "name";
 
-		searchSourceBuilder.size(10_000);
+	private static final int _DEFAULT_SIZE = 20;
 
-		return searchRequest.source(searchSourceBuilder);
-	}
+	private static final int _MAX_SIZE = 1_000;
 
 	@Reference
 	private TenantRepository _tenantRepository;
 
 	@Reference
-	private SearchRequestFactory _searchRequestFactory;
-
-	@Reference
-	private Search _search;
+	private EntityNameDictionary _entityNameDictionary;
 
 	@Reference
 	private HttpResponseWriter _httpResponseWriter;
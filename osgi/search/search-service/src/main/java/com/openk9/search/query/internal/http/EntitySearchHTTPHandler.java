@@ -37,11 +37,15 @@ import org.apache.lucene.search.TotalHits;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MultiMatchQueryBuilder;
+import org.elasticsearch.index.query.Operator;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Mono;
@@ -49,8 +53,11 @@ import reactor.core.publisher.Mono;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component(
 	immediate = true,
@@ -61,6 +68,20 @@ import java.util.Map;
 )
 public class EntitySearchHTTPHandler implements HttpHandler {
 
+	@interface Config {
+		boolean prefixFallbackEnabled() default false;
+	}
+
+	@Activate
+	public void activate(Config config) {
+		_prefixFallbackEnabled = config.prefixFallbackEnabled();
+	}
+
+	@Modified
+	public void modified(Config config) {
+		activate(config);
+	}
+
 	@Override
 	public String getPath() {
 		return "";
@@ -144,6 +165,13 @@ public class EntitySearchHTTPHandler implements HttpHandler {
 
 		BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
 
+		Set<String> searchKeywords = _entityMapperProvider
+			.getEntityMappers()
+			.stream()
+			.map(EntityMapper::getSearchKeywords)
+			.flatMap(Arrays::stream)
+			.collect(Collectors.toCollection(LinkedHashSet::new));
+
 		for (Map.Entry<String, JsonNode> jsonField : jsonNodes.fields()) {
 
 			String key = jsonField.getKey();
@@ -156,26 +184,56 @@ public class EntitySearchHTTPHandler implements HttpHandler {
 				}
 				case ALL: {
 
+					String[] prefixFields = searchKeywords
+						.stream()
+						.map(this::_prefixField)
+						.toArray(String[]::new);
+
 					BoolQueryBuilder allQuery = QueryBuilders.boolQuery();
 
-					_entityMapperProvider
-						.getEntityMappers()
-						.stream()
-						.map(EntityMapper::getSearchKeywords)
-						.flatMap(Arrays::stream)
-						.distinct()
-						.map(field -> QueryBuilders.matchBoolPrefixQuery(
-							field, value.toLowerCase()))
-						.forEach(allQuery::should);
+					allQuery.should(
+						QueryBuilders
+							.multiMatchQuery(value, prefixFields)
+							.type(MultiMatchQueryBuilder.Type.CROSS_FIELDS)
+							.operator(Operator.AND));
+
+					if (_prefixFallbackEnabled) {
+						for (String searchKeyword : searchKeywords) {
+							allQuery.should(
+								QueryBuilders.matchBoolPrefixQuery(
+									searchKeyword, value.toLowerCase()));
+						}
+					}
 
 					boolQuery.must(allQuery);
 
 					break;
 				}
 				default: {
-					boolQuery.must(
-						QueryBuilders.matchBoolPrefixQuery(
-							key, value.toLowerCase()));
+					if (searchKeywords.contains(key)) {
+
+						BoolQueryBuilder keywordQuery =
+							QueryBuilders.boolQuery();
+
+						keywordQuery.should(
+							QueryBuilders
+								.matchQuery(_prefixField(key), value)
+								.operator(Operator.AND));
+
+						if (_prefixFallbackEnabled) {
+							keywordQuery.should(
+								QueryBuilders.matchBoolPrefixQuery(
+									key, value.toLowerCase()));
+						}
+
+						boolQuery.must(keywordQuery);
+
+					}
+					else {
+						boolQuery.must(
+							QueryBuilders.matchBoolPrefixQuery(
+								key, value.toLowerCase()));
+					}
 				}
 
 			}
@@ -184,10 +242,16 @@ public class EntitySearchHTTPHandler implements HttpHandler {
 		return boolQuery;
 	}
 
+	private String _prefixField(String searchKeyword) {
+		return searchKeyword + "." + EntityMapper.PREFIX_SUBFIELD;
+	}
+
 	public static final String ENTITY_ID = "entityId";
 
 	public static final String ALL = "all";
 
+	private boolean _prefixFallbackEnabled;
+
 	@Reference
 	private JsonFactory _jsonFactory;
 
@@ -17,61 +17,53 @@
 
 package com.openk9.search.query.internal.http;
 
-import com.openk9.datasource.model.Datasource;
+import com.openk9.datasource.cache.ActiveDatasourceCache;
 import com.openk9.datasource.model.Tenant;
-import com.openk9.datasource.repository.DatasourceRepository;
 import com.openk9.datasource.repository.TenantRepository;
+import com.openk9.datasource.util.ActiveDatasources;
 import com.openk9.http.util.HttpUtil;
 import com.openk9.http.web.Endpoint;
 import com.openk9.http.web.HttpHandler;
 import com.openk9.http.web.HttpRequest;
 import com.openk9.http.web.HttpResponse;
-import com.openk9.json.api.JsonFactory;
+import com.openk9.http.web.error.ErrorHandler;
 import com.openk9.search.api.query.SearchRequest;
 import com.openk9.search.api.query.SearchToken;
 import com.openk9.search.api.query.SearchTokenizer;
 import com.openk9.search.client.api.Search;
 import com.openk9.search.client.api.util.SearchUtil;
-import com.openk9.ingestion.driver.manager.api.DocumentType;
-import com.openk9.ingestion.driver.manager.api.DocumentTypeProvider;
-import com.openk9.ingestion.driver.manager.api.PluginDriver;
-import com.openk9.ingestion.driver.manager.api.PluginDriverRegistry;
-import com.openk9.ingestion.driver.manager.api.SearchKeyword;
-import com.openk9.search.query.internal.response.Response;
-import org.apache.lucene.search.TotalHits;
-import org.apache.lucene.search.join.ScoreMode;
+import com.openk9.search.query.internal.cache.SearchResultCache;
+import com.openk9.search.query.internal.metrics.SearchStageMetrics;
+import com.openk9.search.query.internal.metrics.SearchTrace;
+import com.openk9.search.query.internal.plan.QueryPlan;
+import com.openk9.search.query.internal.plan.QueryPlanCache;
+import com.openk9.search.query.internal.response.InvalidCursorException;
+import com.openk9.search.query.internal.response.SearchCursor;
+import com.openk9.search.query.internal.response.SearchResponseWriter;
+import com.openk9.search.query.internal.slowlog.SlowQueryRecorder;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.common.text.Text;
-import org.elasticsearch.index.query.BoolQueryBuilder;
-import org.elasticsearch.index.query.MultiMatchQueryBuilder;
-import org.elasticsearch.index.query.Operator;
-import org.elasticsearch.index.query.QueryBuilder;
-import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.SearchHits;
-import org.elasticsearch.search.builder.SearchSourceBuilder;
-import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
-import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.script.mustache.SearchTemplateRequest;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.reactivestreams.Publisher;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Consumer;
-import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.stream.LongStream;
 
 @Component(
 	immediate = true,
@@ -82,6 +74,24 @@ import java.util.stream.Stream;
 )
 public class SearchHTTPHandler implements HttpHandler {
 
+	@interface Config {
+		long timeoutMs() default 0;
+		int terminateAfter() default 0;
+		int facetSize() default 50;
+	}
+
+	@Activate
+	public void activate(Config config) {
+		_timeoutMs = config.timeoutMs();
+		_terminateAfter = config.terminateAfter();
+		_facetSize = config.facetSize();
+	}
+
+	@Modified
+	public void modified(Config config) {
+		activate(config);
+	}
+
 	@Override
 	public String getPath() {
 		return "";
@@ -92,111 +102,141 @@ public class SearchHTTPHandler implements HttpHandler {
 		return HttpHandler.GET + HttpHandler.POST;
 	}
 
+	@Override
+	public ErrorHandler errorHandler() {
+		return _ERROR_HANDLER;
+	}
+
 	@Override
 	public Publisher<Void> apply(
 		HttpRequest httpRequest, HttpResponse httpResponse) {
 
 		String hostName = HttpUtil.getHostName(httpRequest);
 
-		return _tenantRepository
-			.findByVirtualHost(hostName)
-			.switchIfEmpty(
-				Mono.error(
-					() -> new RuntimeException(
-						"tenant not found for virtualhost: " + hostName)))
-			.map(Tenant::getTenantId)
-			.zipWith(Mono.from(httpRequest.aggregateBodyToString()))
-			.flatMap(t2 -> _datasourceRepository.findByTenantIdAndIsActive(t2.getT1())
-				.collectList()
-				.flatMap(datasources -> _toQuerySearchRequest(
-					t2.getT1(), datasources,
-					_searchTokenizer.parse(t2.getT2()))))
-			.map(SearchResponse::getHits)
-			.map(this::_searchHitToResponse)
-			.map(_jsonFactory::toJson)
-			.transform(httpResponse::sendString);
+		return Mono.defer(() -> {
 
-	}
+			long tenantLookupStart = System.nanoTime();
 
-	private Response _searchHitToResponse(SearchHits hits) {
+			return _tenantRepository
+				.findByVirtualHost(hostName)
+				.switchIfEmpty(
+					Mono.error(
+						() -> new RuntimeException(
+							"tenant not found for virtualhost: " + hostName)))
+				.map(Tenant::getTenantId)
+				.doOnNext(tenantId -> _searchStageMetrics.record(
+					_ENDPOINT, SearchStageMetrics.TENANT_LOOKUP, tenantId,
+					tenantLookupStart));
 
-		List<Map<String, Object>> result = new ArrayList<>();
+		})
+			.zipWith(Mono.from(httpRequest.aggregateBodyToString()))
+			.flatMap(t2 -> {
 
-		for (SearchHit hit : hits.getHits()) {
+				long tenantId = t2.getT1();
 
-			Map<String, Object> sourceAsMap = hit.getSourceAsMap();
+				long datasourceLookupStart = System.nanoTime();
 
-			Map<String, Object> sourceMap = new HashMap<>(
-				sourceAsMap.size() + 1, 1);
+				return _activeDatasourceCache
+					.getActiveDatasources(tenantId)
+					.doOnNext(activeDatasources -> _searchStageMetrics.record(
+						_ENDPOINT, SearchStageMetrics.DATASOURCE_LOOKUP,
+						tenantId, datasourceLookupStart))
+					.flatMap(activeDatasources -> {
 
-			sourceMap.putAll(sourceAsMap);
+						long bodyParseStart = System.nanoTime();
 
-			sourceMap.put("id", hit.getId());
+						SearchRequest searchRequest =
+							_searchTokenizer.parse(t2.getT2());
 
-			Map<String, HighlightField> highlightFields =
-				hit.getHighlightFields();
+						_searchStageMetrics.record(
+							_ENDPOINT, SearchStageMetrics.BODY_PARSE, tenantId,
+							bodyParseStart);
 
-			Map<String, Object> highlightMap = new HashMap<>(
-				highlightFields.size(), 1);
+						return _searchResultCache.get(
+							activeDatasources, searchRequest,
+							() -> Mono.defer(() -> {
 
-			for (HighlightField value : highlightFields.values()) {
-				highlightMap.put(
-					value.getName(),
-					Arrays
-						.stream(value.getFragments())
-						.map(Text::string)
-						.toArray(String[]::new)
-				);
-			}
+								SearchTrace searchTrace = new SearchTrace();
 
-			Map<String, Object> hitMap = new HashMap<>(2, 1);
+								return _toQuerySearchRequest(
+									activeDatasources, searchRequest,
+									searchTrace)
+									.map(searchResponse -> _write(
+										tenantId, searchRequest, searchResponse,
+										searchTrace));
 
-			hitMap.put("source", sourceMap);
-			hitMap.put("highlight", highlightMap);
+							}));
 
-			result.add(hitMap);
+					});
 
-		}
+			})
+			.onErrorResume(TimeoutException.class, e -> {
+
+				httpResponse.status(504);
 
-		TotalHits totalHits = hits.getTotalHits();
+				return Mono.just(_searchResponseWriter.writeTimedOut());
+
+			})
+			.transform(httpResponse::sendByteArray);
 
-		return new Response(
-			result,
-			totalHits.value,
-			totalHits.relation == TotalHits.Relation.EQUAL_TO
-		);
 	}
 
-	private Mono<SearchResponse> _toQuerySearchRequest(
-		long tenantId, List<Datasource> datasources, SearchRequest searchRequest) {
+	private Tuple2<byte[], Boolean> _write(
+		long tenantId, SearchRequest searchRequest,
+		SearchResponse searchResponse, SearchTrace searchTrace) {
 
-		return _search.search(factory -> {
+		long serializationStart = System.nanoTime();
 
-			BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
+		byte[] bytes = _searchResponseWriter.writeWithCursor(
+			searchResponse, searchRequest.getRange()[1]);
 
-			long[] ids = new long[datasources.size()];
+		_searchStageMetrics.record(
+			_ENDPOINT, SearchStageMetrics.SERIALIZATION, tenantId,
+			serializationStart);
 
-			List<String> serviceDriverNames =
-				new ArrayList<>(datasources.size());
+		_slowQueryRecorder.record(
+			tenantId, searchRequest.getSearchQuery(), searchTrace,
+			searchResponse, bytes.length);
 
-			for (int i = 0; i < datasources.size(); i++) {
+		return Tuples.of(bytes, !SearchUtil.isPartial(searchResponse));
 
-				Datasource datasource = datasources.get(i);
+	}
 
-				ids[i] = datasource.getDatasourceId();
+	private Mono<SearchResponse> _toQuerySearchRequest(
+		ActiveDatasources activeDatasources, SearchRequest searchRequest,
+		SearchTrace searchTrace) {
 
-				String driverServiceName = datasource.getDriverServiceName();
+		long tenantId = activeDatasources.getTenantId();
 
-				if (!serviceDriverNames.contains(driverServiceName)) {
-					serviceDriverNames.add(driverServiceName);
-				}
+		return _toSearchTemplateRequest(
+			activeDatasources, searchRequest, searchTrace
+		).doOnNext(searchResponse -> {
 
+			if (SearchUtil.isSynthetic(searchResponse)) {
+				return;
 			}
 
-			boolQuery.filter(
-				QueryBuilders
-					.termsQuery("datasourceId", ids)
-			);
+			_searchStageMetrics.record(
+				_ENDPOINT, SearchStageMetrics.QUERY_BUILD, tenantId,
+				searchTrace.getStartNanos(),
+				searchTrace.getRequestSentNanos());
+
+			_searchStageMetrics.record(
+				_ENDPOINT, SearchStageMetrics.ELASTICSEARCH_ROUND_TRIP,
+				tenantId, searchTrace.getRequestSentNanos());
+
+			_searchStageMetrics.recordTook(
+				_ENDPOINT, tenantId, searchResponse);
+
+		});
+
+	}
+
+	private Mono<SearchResponse> _toSearchTemplateRequest(
+		ActiveDatasources activeDatasources, SearchRequest searchRequest,
+		SearchTrace searchTrace) {
+
+		return Mono.defer(() -> {
 
 			Map<String, List<SearchToken>> tokenTypeGroup =
 				searchRequest
@@ -204,317 +244,269 @@ public class SearchHTTPHandler implements HttpHandler {
 					.stream()
 					.collect(Collectors.groupingBy(SearchToken::getTokenType));
 
-			List<SearchToken> datasource = tokenTypeGroup.get("DATASOURCE");
+			QueryPlan queryPlan = _queryPlanCache.getQueryPlan(
+				activeDatasources, tokenTypeGroup.get("DATASOURCE"));
 
-			Collection<PluginDriver> pluginDriverList =
-				_pluginDriverRegistry.getPluginDriverList(serviceDriverNames);
+			if (queryPlan.isEmpty()) {
+				return Mono.just(SearchUtil.EMPTY_SEARCH_RESPONSE);
+			}
 
-			Map<PluginDriver, List<DocumentType>> pluginDriverListDocumentType =
-				pluginDriverList
-					.stream()
-					.collect(
-						Collectors.toMap(
-							Function.identity(),
-							pd -> {
-
-								List<DocumentType> supportedDocumentTypes =
-									_documentTypeProvider.getDocumentTypeList(
-										pd.getName());
-
-								if (supportedDocumentTypes.isEmpty()) {
-									return Collections.singletonList(
-										_documentTypeProvider
-											.getDefaultDocumentType(
-												pd.getName())
-									);
-								}
-
-								return supportedDocumentTypes;
-							},
-							(o1, o2) -> {
-								throw new IllegalStateException(
-									String.format("Duplicate key %s", o1));
-							},
-							IdentityHashMap::new
-						)
-					);
-
-
-			Stream<Map.Entry<PluginDriver, List<DocumentType>>>
-				documentTypeStream =
-					pluginDriverListDocumentType.entrySet().stream();
-
-			if (datasource != null) {
-
-				List<String> datasourceValues = datasource
-					.stream()
-					.map(SearchToken::getValues)
-					.flatMap(Arrays::stream)
-					.distinct()
-					.collect(Collectors.toList());
-
-				documentTypeStream =
-					documentTypeStream
-						.filter(
-							entry ->
-								datasourceValues.contains(
-									entry.getKey().getName()));
+			return _search.searchTemplate(factory -> {
 
-			}
+				SearchTemplateRequest searchTemplateRequest =
+					new SearchTemplateRequest(
+						factory.createSearchRequestData(
+							activeDatasources.getTenantId(),
+							queryPlan.getIndexNames()));
 
-			List<Map.Entry<PluginDriver, List<DocumentType>>> documentTypeList =
-				documentTypeStream.collect(Collectors.toList());
+				searchTemplateRequest.setScriptType(ScriptType.STORED);
 
-			if (documentTypeList.isEmpty()) {
-				return SearchUtil.EMPTY_SEARCH_REQUEST;
-			}
+				searchTemplateRequest.setScript(
+					SearchUtil.DATA_SEARCH_TEMPLATE_ID);
 
-			Stream.of(
-				tokenTypeGroup
-					.getOrDefault("ENTITY", Collections.emptyList())
-					.stream()
-					.map(this::_entityEnrichBoolQuery),
-				Stream.of(_docTypeBoolQuery(
-					tokenTypeGroup
-						.getOrDefault("DOCTYPE", Collections.emptyList()))),
-				this._textEntityQuery(
-					tokenTypeGroup.getOrDefault(
-						"TEXT", Collections.emptyList()), documentTypeList)
-				)
-					.flatMap(Function.identity())
-					.reduce(Consumer::andThen)
-					.orElse(_DEFAULT_CONSUMER)
-					.accept(boolQuery);
-
-			org.elasticsearch.action.search.SearchRequest elasticSearchQuery;
-
-			if (datasource != null) {
-
-				String[] indexNames = documentTypeList
-					.stream()
-					.map(Map.Entry::getKey)
-					.map(PluginDriver::getName)
-					.distinct()
-					.toArray(String[]::new);
+				searchTemplateRequest.setScriptParams(
+					_searchTemplateParams(
+						searchRequest, tokenTypeGroup, queryPlan));
 
-				elasticSearchQuery =
-					factory.createSearchRequestData(tenantId, indexNames);
-			}
-			else {
-				elasticSearchQuery =
-					factory.createSearchRequestData(tenantId, "*");
-			}
+				if (searchRequest.getFacets() != null &&
+					searchRequest.getRange()[1] == 0) {
 
-			SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
+					searchTemplateRequest.getRequest().requestCache(true);
+				}
 
-			int[] range = searchRequest.getRange();
+				searchTrace.requestSent(
+					() -> Strings.toString(searchTemplateRequest));
 
-			searchSourceBuilder.from(range[0]);
-			searchSourceBuilder.size(range[1]);
+				return searchTemplateRequest;
 
-			searchSourceBuilder.query(boolQuery);
+			});
 
-			HighlightBuilder highlightBuilder = new HighlightBuilder();
+		});
 
-			documentTypeList
-				.stream()
-				.map(Map.Entry::getValue)
-				.flatMap(Collection::stream)
-				.map(DocumentType::getSearchKeywords)
-				.flatMap(Collection::stream)
-				.filter(SearchKeyword::isText)
-				.map(SearchKeyword::getKeyword)
-				.distinct()
-				.forEach(highlightBuilder::field);
+	}
 
-			highlightBuilder.forceSource(true);
+	private Map<String, Object> _searchTemplateParams(
+		SearchRequest searchRequest,
+		Map<String, List<SearchToken>> tokenTypeGroup, QueryPlan queryPlan) {
 
-			highlightBuilder.tagsSchema("default");
+		Map<String, Object> params = new HashMap<>();
 
-			searchSourceBuilder.highlighter(highlightBuilder);
+		int[] range = searchRequest.getRange();
 
-			if (_log.isDebugEnabled()) {
-				_log.debug(searchSourceBuilder.toString());
-			}
+		String cursor = searchRequest.getCursor();
 
-			return elasticSearchQuery.source(searchSourceBuilder);
+		if (cursor != null && !cursor.isEmpty()) {
+			params.put(
+				"searchAfter",
+				List.of(
+					Map.of(
+						"values",
+						Arrays.asList(SearchCursor.decode(cursor)))));
+		}
 
-		});
+		params.put("from", range[0]);
 
-	}
+		params.put("size", range[1]);
 
-	private Consumer<BoolQueryBuilder> _docTypeBoolQuery(
-		List<SearchToken> searchTokenList) {
+		long timeoutMs = _getTimeoutMs(searchRequest);
 
-		if (searchTokenList.isEmpty()) {
-			return _DEFAULT_CONSUMER;
+		params.put(
+			"timeout",
+			timeoutMs > 0 ? List.of(timeoutMs + "ms") : List.of());
+
+		params.put(
+			"terminateAfter",
+			_terminateAfter > 0 ? List.of(_terminateAfter) : List.of());
+
+		String[] includes = searchRequest.getIncludes();
+
+		if (includes == null) {
+			includes = Strings.EMPTY_ARRAY;
 		}
 
-		String[][] typeArray =
-			searchTokenList
-				.stream()
-				.map(SearchToken::getValues)
-				.toArray(String[][]::new);
+		String[] excludes = searchRequest.getExcludes();
+
+		if (excludes == null) {
+			excludes = queryPlan.getSourceExcludes();
+		}
 
-		return bool -> {
+		params.put("includes", Arrays.asList(includes));
 
-			BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
+		params.put("excludes", Arrays.asList(excludes));
 
-			for (String[] types : typeArray) {
+		params.put(
+			"datasourceIds",
+			LongStream
+				.of(queryPlan.getDatasourceIds())
+				.boxed()
+				.collect(Collectors.toList()));
 
-				BoolQueryBuilder shouldBool = QueryBuilders.boolQuery();
+		params.put(
+			"entities",
+			tokenTypeGroup
+				.getOrDefault("ENTITY", Collections.emptyList())
+				.stream()
+				.map(this::_entityTemplateParam)
+				.collect(Collectors.toList()));
 
-				for (String type : types) {
-					shouldBool
-						.should(
-							QueryBuilders
-								.matchQuery("type", type)
-								.operator(Operator.AND)
-						);
-				}
+		params.put(
+			"docTypes",
+			tokenTypeGroup
+				.getOrDefault("DOCTYPE", Collections.emptyList())
+				.stream()
+				.map(SearchToken::getValues)
+				.filter(values -> values.length > 0)
+				.map(values -> Map.of("values", _firstFlagged(values)))
+				.collect(Collectors.toList()));
+
+		List<Map<String, Object>> texts = new ArrayList<>();
 
-				boolQueryBuilder.must(shouldBool);
+		for (SearchToken searchToken : tokenTypeGroup.getOrDefault(
+				"TEXT", Collections.emptyList())) {
 
+			String[] values = searchToken.getValues();
+
+			if (values.length == 0) {
+				continue;
 			}
 
-			bool.filter(boolQueryBuilder);
+			List<String> fields = queryPlan
+				.getKeywordBoostMap(searchToken.getKeywordKey())
+				.entrySet()
+				.stream()
+				.map(entry -> entry.getKey() + "^" + entry.getValue())
+				.collect(Collectors.toList());
 
-		};
-	}
+			texts.add(
+				Map.of(
+					"fields", fields, "values", _firstFlagged(values),
+					"first", texts.isEmpty()));
 
-	private Stream<Consumer<BoolQueryBuilder>> _textEntityQuery(
-		List<SearchToken> tokenTextList,
-		List<Map.Entry<PluginDriver, List<DocumentType>>> entityMapperList) {
+		}
 
-		return tokenTextList
-			.stream()
-			.map(searchToken -> _termQueryPrefixValues(
-				searchToken, entityMapperList));
-	}
+		params.put("texts", texts);
 
-	private Consumer<BoolQueryBuilder> _termQueryPrefixValues(
-		SearchToken tokenText,
-		List<Map.Entry<PluginDriver, List<DocumentType>>> entityMapperList) {
+		params.put(
+			"highlight",
+			texts.isEmpty()
+				? List.of()
+				: List.of(
+					Map.of("fields", queryPlan.getHighlightTemplateParam())));
 
-		return query -> {
+		Map<String, Object> aggs = new LinkedHashMap<>();
 
-			String[] values = tokenText.getValues();
+		String[] facets = searchRequest.getFacets();
 
-			if (values.length == 0) {
-				return;
-			}
+		if (facets != null) {
 
-			String keywordKey = tokenText.getKeywordKey();
+			for (String facet : facets) {
 
-			Predicate<SearchKeyword> keywordKeyPredicate =
-				searchKeyword -> keywordKey == null || keywordKey.isEmpty() ||
-								 searchKeyword.getKeyword().equals(keywordKey);
+				if (_DATASOURCE_FACET.equals(facet)) {
+					aggs.put(facet, _datasourceFacet(queryPlan));
+					continue;
+				}
 
-			Map<String, Float> keywordBoostMap =
-				entityMapperList
-					.stream()
-					.map(Map.Entry::getValue)
-					.flatMap(Collection::stream)
-					.map(DocumentType::getSearchKeywords)
-					.flatMap(Collection::stream)
-					.filter(SearchKeyword::isText)
-					.distinct()
-					.filter(keywordKeyPredicate)
-					.map(SearchKeyword::getFieldBoost)
-					.collect(
-						Collectors.toMap(
-							Map.Entry::getKey, Map.Entry::getValue));
+				String facetField = _FACET_FIELDS.get(facet);
 
+				if (facetField != null) {
+					aggs.put(
+						facet,
+						Map.of(
+							"terms",
+							Map.of("field", facetField, "size", _facetSize)));
+				}
 
-			BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
+			}
 
-			for (String value : values) {
+		}
 
-				MultiMatchQueryBuilder multiMatchQueryBuilder =
-					new MultiMatchQueryBuilder(value);
+		params.put("aggs", aggs);
 
-				multiMatchQueryBuilder.fields(keywordBoostMap);
+		return params;
 
-				boolQueryBuilder.should(multiMatchQueryBuilder);
+	}
 
-				multiMatchQueryBuilder =
-					new MultiMatchQueryBuilder(value);
+	private Map<String, Object> _datasourceFacet(QueryPlan queryPlan) {
 
-				multiMatchQueryBuilder.fields(keywordBoostMap);
+		Map<String, Object> filters = new LinkedHashMap<>();
 
-				multiMatchQueryBuilder.type(
-					MultiMatchQueryBuilder.Type.PHRASE);
+		for (long datasourceId : queryPlan.getDatasourceIds()) {
+			filters.put(
+				String.valueOf(datasourceId),
+				Map.of("term", Map.of("datasourceId", datasourceId)));
+		}
 
-				multiMatchQueryBuilder.slop(2);
+		return Map.of("filters", Map.of("filters", filters));
 
-				multiMatchQueryBuilder.boost(2.0f);
+	}
 
-				boolQueryBuilder.should(multiMatchQueryBuilder);
+	private List<Map<String, Object>> _firstFlagged(String[] values) {
 
-			}
+		List<Map<String, Object>> valueParams = new ArrayList<>();
 
-			query.must(boolQueryBuilder);
+		for (String value : values) {
+			valueParams.add(
+				Map.of("value", value, "first", valueParams.isEmpty()));
+		}
+
+		return valueParams;
 
-		};
 	}
 
-	private Consumer<BoolQueryBuilder> _entityEnrichBoolQuery(
-		SearchToken searchToken) {
+	private Map<String, Object> _entityTemplateParam(SearchToken searchToken) {
 
-		return boolQueryBuilder -> {
+		String keywordKey = searchToken.getKeywordKey();
 
-			String[] ids = searchToken.getValues();
+		return Map.of(
+			"path", ENTITIES + "." + searchToken.getEntityType(),
+			"ids", Arrays.asList(searchToken.getValues()),
+			"contexts",
+			keywordKey != null && !keywordKey.isEmpty()
+				? List.of(keywordKey) : List.of());
 
-			String entityType = searchToken.getEntityType();
+	}
+
+	private long _getTimeoutMs(SearchRequest searchRequest) {
 
-			String nestEntityPath = ENTITIES + "." + entityType;
+		Long timeout = searchRequest.getTimeout();
 
-			String nestIdPath = nestEntityPath + ".id";
+		return timeout != null && timeout > 0 ? timeout : _timeoutMs;
 
-			BoolQueryBuilder innerNestBoolQuery = QueryBuilders
-				.boolQuery()
-				.must(_multiMatchValues(nestIdPath, ids));
+	}
 
-			String keywordKey = searchToken.getKeywordKey();
+	private static final ErrorHandler _ERROR_HANDLER =
+		(throwable, httpResponse) -> {
 
-			if (keywordKey != null && !keywordKey.isEmpty()) {
-				innerNestBoolQuery
-					.must(QueryBuilders.matchQuery(
-						nestEntityPath + ".context", keywordKey));
+			if (throwable instanceof InvalidCursorException) {
+				return httpResponse.sendString(
+					Mono.just(
+						httpResponse.status(400, throwable.getMessage())));
 			}
 
-			boolQueryBuilder.filter(
-				QueryBuilders.nestedQuery(
-					nestEntityPath,
-					innerNestBoolQuery,
-					ScoreMode.Max)
-			);
+			return ErrorHandler.DEFAULT.apply(throwable, httpResponse);
 
 		};
-	}
 
-	private QueryBuilder _multiMatchValues(String field, String[] ids) {
+	private static final String ENTITIES = "entities";
 
-		BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
+	private static final String _ENDPOINT = "search";
 
-		for (String id : ids) {
-			boolQuery.should(QueryBuilders.termQuery(field, id));
-		}
+	private static final String _DATASOURCE_FACET = "datasourceId";
 
-		return boolQuery;
+	private static final Map<String, String> _FACET_FIELDS = Map.of(
+		"type", "type");
 
-	}
+	private long _timeoutMs;
 
-	private static final Consumer<BoolQueryBuilder> _DEFAULT_CONSUMER =
-		(bool) -> {};
+	private int _terminateAfter;
 
-	private static final String ENTITIES = "entities";
+	private int _facetSize;
 
 	@Reference
 	private TenantRepository _tenantRepository;
 
 	@Reference
-	private DatasourceRepository _datasourceRepository;
+	private ActiveDatasourceCache _activeDatasourceCache;
 
 	@Reference
 	private Search _search;
@@ -523,15 +515,18 @@ public class SearchHTTPHandler implements HttpHandler {
 	private SearchTokenizer _searchTokenizer;
 
 	@Reference
-	private PluginDriverRegistry _pluginDriverRegistry;
+	private QueryPlanCache _queryPlanCache;
 
 	@Reference
-	private DocumentTypeProvider _documentTypeProvider;
+	private SearchResultCache _searchResultCache;
 
 	@Reference
-	private JsonFactory _jsonFactory;
+	private SearchResponseWriter _searchResponseWriter;
 
-	private static final Logger _log = LoggerFactory.getLogger(
-		SearchHTTPHandler.class);
+	@Reference
+	private SearchStageMetrics _searchStageMetrics;
+
+	@Reference
+	private SlowQueryRecorder _slowQueryRecorder;
 
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.http;
+
+import com.openk9.datasource.model.Tenant;
+import com.openk9.datasource.repository.TenantRepository;
+import com.openk9.http.util.HttpResponseWriter;
+import com.openk9.http.util.HttpUtil;
+import com.openk9.http.web.Endpoint;
+import com.openk9.http.web.HttpHandler;
+import com.openk9.http.web.HttpRequest;
+import com.openk9.http.web.HttpResponse;
+import com.openk9.search.query.internal.response.Response;
+import com.openk9.search.query.internal.slowlog.SlowQuery;
+import com.openk9.search.query.internal.slowlog.SlowQueryRecorder;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Component(
+	immediate = true,
+	service = Endpoint.class,
+	property = {
+		"base.path=/v1/slow-queries"
+	}
+)
+public class SlowQueryHTTPHandler implements HttpHandler {
+
+	@Override
+	public String getPath() {
+		return "";
+	}
+
+	@Override
+	public int method() {
+		return HttpHandler.GET;
+	}
+
+	@Override
+	public Publisher<Void> apply(
+		HttpRequest httpRequest, HttpResponse httpResponse) {
+
+		String hostName = HttpUtil.getHostName(httpRequest);
+
+		Mono<Response> response = _tenantRepository
+			.findByVirtualHost(hostName)
+			.switchIfEmpty(
+				Mono.error(
+					() -> new RuntimeException(
+						"tenant not found for virtualhost: " + hostName)))
+			.map(Tenant::getTenantId)
+			.map(_slowQueryRecorder::getSlowQueries)
+			.map(this::_toResponse);
+
+		return _httpResponseWriter.write(httpResponse, response);
+
+	}
+
+	private Response _toResponse(List<SlowQuery> slowQueries) {
+		return new Response(slowQueries, slowQueries.size(), true);
+	}
+
+	@Reference
+	private TenantRepository _tenantRepository;
+
+	@Reference
+	private SlowQueryRecorder _slowQueryRecorder;
+
+	@Reference
+	private HttpResponseWriter _httpResponseWriter;
+
+}
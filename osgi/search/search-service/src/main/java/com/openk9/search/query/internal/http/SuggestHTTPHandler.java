@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.http;
+
+import com.openk9.datasource.cache.ActiveDatasourceCache;
+import com.openk9.datasource.model.Tenant;
+import com.openk9.datasource.repository.TenantRepository;
+import com.openk9.datasource.util.ActiveDatasources;
+import com.openk9.http.util.HttpResponseWriter;
+import com.openk9.http.util.HttpUtil;
+import com.openk9.http.web.Endpoint;
+import com.openk9.http.web.HttpHandler;
+import com.openk9.http.web.HttpRequest;
+import com.openk9.http.web.HttpResponse;
+import com.openk9.search.api.query.SearchRequest;
+import com.openk9.search.api.query.SearchToken;
+import com.openk9.search.api.query.SearchTokenizer;
+import com.openk9.search.client.api.Search;
+import com.openk9.search.client.api.mapping.SuggestField;
+import com.openk9.search.client.api.util.SearchUtil;
+import com.openk9.search.query.internal.plan.QueryPlan;
+import com.openk9.search.query.internal.plan.QueryPlanCache;
+import com.openk9.search.query.internal.response.Response;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.suggest.Suggest;
+import org.elasticsearch.search.suggest.SuggestBuilder;
+import org.elasticsearch.search.suggest.SuggestBuilders;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
+import org.elasticsearch.search.suggest.completion.context.CategoryQueryContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+@Component(
+	immediate = true,
+	service = Endpoint.class,
+	property = {
+		"base.path=/v1/suggest"
+	}
+)
+public class SuggestHTTPHandler implements HttpHandler {
+
+	@interface Config {
+		long timeoutMs() default 0;
+	}
+
+	@Activate
+	public void activate(Config config) {
+		_timeoutMs = config.timeoutMs();
+	}
+
+	@Modified
+	public void modified(Config config) {
+		activate(config);
+	}
+
+	@Override
+	public String getPath() {
+		return "";
+	}
+
+	@Override
+	public int method() {
+		return HttpHandler.GET + HttpHandler.POST;
+	}
+
+	@Override
+	public Publisher<Void> apply(
+		HttpRequest httpRequest, HttpResponse httpResponse) {
+
+		String hostName = HttpUtil.getHostName(httpRequest);
+
+		Mono<Response> response = _tenantRepository
+			.findByVirtualHost(hostName)
+			.switchIfEmpty(
+				Mono.error(
+					() -> new RuntimeException(
+						"tenant not found for virtualhost: " + hostName)))
+			.map(Tenant::getTenantId)
+			.zipWith(Mono.from(httpRequest.aggregateBodyToString()))
+			.flatMap(t2 -> _activeDatasourceCache
+				.getActiveDatasources(t2.getT1())
+				.flatMap(activeDatasources -> _suggest(
+					activeDatasources, _searchTokenizer.parse(t2.getT2()))));
+
+		return _httpResponseWriter.write(httpResponse, response);
+
+	}
+
+	private Mono<Response> _suggest(
+		ActiveDatasources activeDatasources, SearchRequest searchRequest) {
+
+		Map<String, List<SearchToken>> tokenTypeGroup =
+			searchRequest
+				.getSearchQuery()
+				.stream()
+				.collect(Collectors.groupingBy(SearchToken::getTokenType));
+
+		String prefix = tokenTypeGroup
+			.getOrDefault("TEXT", Collections.emptyList())
+			.stream()
+			.map(SearchToken::getValues)
+			.flatMap(Arrays::stream)
+			.collect(Collectors.joining(" "))
+			.trim();
+
+		int[] range = searchRequest.getRange();
+
+		int size = range != null && range.length > 1 && range[1] > 0
+			? range[1] : _DEFAULT_SIZE;
+
+		if (prefix.isEmpty()) {
+			return Mono.just(new Response(Collections.emptyList(), 0, true));
+		}
+
+		QueryPlan queryPlan = _queryPlanCache.getQueryPlan(
+			activeDatasources, tokenTypeGroup.get("DATASOURCE"));
+
+		long[] datasourceIds = queryPlan.getDatasourceIds();
+
+		if (datasourceIds == null || datasourceIds.length == 0) {
+			return Mono.just(new Response(Collections.emptyList(), 0, true));
+		}
+
+		Map<String, List<? extends ToXContent>> contexts = Map.of(
+			SuggestField.CONTEXT_NAME,
+			Arrays
+				.stream(datasourceIds)
+				.mapToObj(datasourceId -> CategoryQueryContext
+					.builder()
+					.setCategory(String.valueOf(datasourceId))
+					.build())
+				.collect(Collectors.toList()));
+
+		Long timeout = searchRequest.getTimeout();
+
+		long timeoutMs =
+			timeout != null && timeout > 0 ? timeout : _timeoutMs;
+
+		AtomicBoolean failed = new AtomicBoolean();
+
+		return Flux
+			.fromIterable(queryPlan.getSuggestFieldMap().entrySet())
+			.flatMap(entry -> _search
+				.search(factory -> {
+
+					org.elasticsearch.action.search.SearchRequest
+						elasticSearchQuery = factory.createSearchRequestData(
+							activeDatasources.getTenantId(), entry.getKey());
+
+					elasticSearchQuery.indicesOptions(
+						IndicesOptions.lenientExpandOpen());
+
+					SuggestBuilder suggestBuilder = new SuggestBuilder();
+
+					for (String suggestField : entry.getValue()) {
+						suggestBuilder.addSuggestion(
+							suggestField,
+							SuggestBuilders
+								.completionSuggestion(suggestField)
+								.prefix(prefix)
+								.contexts(contexts)
+								.skipDuplicates(true)
+								.size(size));
+					}
+
+					SearchSourceBuilder searchSourceBuilder =
+						new SearchSourceBuilder();
+
+					searchSourceBuilder.size(0);
+
+					searchSourceBuilder.fetchSource(false);
+
+					searchSourceBuilder.suggest(suggestBuilder);
+
+					if (timeoutMs > 0) {
+						searchSourceBuilder.timeout(
+							TimeValue.timeValueMillis(timeoutMs));
+					}
+
+					return elasticSearchQuery.source(searchSourceBuilder);
+
+				})
+				.onErrorResume(throwable -> {
+
+					failed.set(true);
+
+					if (_log.isDebugEnabled()) {
+						_log.debug(
+							"suggest failed for driver " + entry.getKey(),
+							throwable);
+					}
+
+					return Mono.empty();
+
+				}))
+			.collectList()
+			.map(searchResponses -> _toResponse(
+				searchResponses, size, failed.get()));
+
+	}
+
+	private List<CompletionSuggestion.Entry.Option> _toOptions(
+		SearchResponse searchResponse) {
+
+		Suggest suggest = searchResponse.getSuggest();
+
+		if (suggest == null) {
+			return Collections.emptyList();
+		}
+
+		List<CompletionSuggestion.Entry.Option> options = new ArrayList<>();
+
+		for (CompletionSuggestion completionSuggestion
+			: suggest.filter(CompletionSuggestion.class)) {
+
+			options.addAll(completionSuggestion.getOptions());
+		}
+
+		return options;
+
+	}
+
+	private Response _toResponse(
+		List<SearchResponse> searchResponses, int size, boolean partial) {
+
+		List<CompletionSuggestion.Entry.Option> options = new ArrayList<>();
+
+		for (SearchResponse searchResponse : searchResponses) {
+			options.addAll(_toOptions(searchResponse));
+			partial |= SearchUtil.isPartial(searchResponse);
+		}
+
+		options.sort(
+			Comparator
+				.comparing(CompletionSuggestion.Entry.Option::getScore)
+				.reversed());
+
+		Map<String, Map<String, Object>> suggestions = new LinkedHashMap<>();
+
+		for (CompletionSuggestion.Entry.Option option : options) {
+
+			if (suggestions.size() >= size) {
+				break;
+			}
+
+			String text = option.getText().string();
+
+			suggestions.putIfAbsent(text, Map.of("text", text));
+
+		}
+
+		return new Response(
+			new ArrayList<>(suggestions.values()), suggestions.size(), true,
+			partial);
+
+	}
+
+	private long _timeoutMs;
+
+	@Reference
+	private TenantRepository _tenantRepository;
+
+	@Reference
+	private ActiveDatasourceCache _activeDatasourceCache;
+
+	@Reference
+	private Search _search;
+
+	@Reference
+	private SearchTokenizer _searchTokenizer;
+
+	@Reference
+	private QueryPlanCache _queryPlanCache;
+
+	@Reference
+	private HttpResponseWriter _httpResponseWriter;
+
+	private static final int _DEFAULT_SIZE = 10;
+
+	private static final Logger _log = LoggerFactory.getLogger(
+		SuggestHTTPHandler.class);
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.metrics;
+
+import com.openk9.search.client.api.util.SearchUtil;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.elasticsearch.action.search.SearchResponse;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component(
+	immediate = true,
+	service = SearchStageMetrics.class
+)
+public class SearchStageMetrics {
+
+	public static final String TENANT_LOOKUP = "tenant_lookup";
+
+	public static final String DATASOURCE_LOOKUP = "datasource_lookup";
+
+	public static final String BODY_PARSE = "body_parse";
+
+	public static final String QUERY_BUILD = "query_build";
+
+	public static final String ELASTICSEARCH_TOOK = "elasticsearch_took";
+
+	public static final String ELASTICSEARCH_ROUND_TRIP =
+		"elasticsearch_round_trip";
+
+	public static final String SERIALIZATION = "serialization";
+
+	@interface Config {
+		boolean percentileHistogram() default false;
+	}
+
+	@Activate
+	public void activate(Config config) {
+		_percentileHistogram = config.percentileHistogram();
+	}
+
+	@Modified
+	public void modified(Config config) {
+		deactivate();
+		activate(config);
+	}
+
+	@Deactivate
+	public void deactivate() {
+		_timerMap.values().forEach(Metrics.globalRegistry::remove);
+		_timerMap.clear();
+	}
+
+	public void record(
+		String endpoint, String stage, long tenantId, long startNanos) {
+
+		record(endpoint, stage, tenantId, startNanos, System.nanoTime());
+	}
+
+	public void record(
+		String endpoint, String stage, long tenantId, long startNanos,
+		long endNanos) {
+
+		_getTimer(endpoint, stage, tenantId).record(
+			endNanos - startNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordTook(
+		String endpoint, long tenantId, SearchResponse searchResponse) {
+
+		if (SearchUtil.isSynthetic(searchResponse) ||
+			searchResponse.getTook() == null) {
+
+			return;
+		}
+
+		_getTimer(endpoint, ELASTICSEARCH_TOOK, tenantId).record(
+			searchResponse.getTook().millis(), TimeUnit.MILLISECONDS);
+	}
+
+	private Timer _getTimer(String endpoint, String stage, long tenantId) {
+
+		return _timerMap.computeIfAbsent(
+			endpoint + '|' + stage + '|' + tenantId,
+			key -> Timer
+				.builder(_METRIC_NAME)
+				.tag("endpoint", endpoint)
+				.tag("stage", stage)
+				.tag("tenant", String.valueOf(tenantId))
+				.publishPercentileHistogram(_percentileHistogram)
+				.register(Metrics.globalRegistry));
+	}
+
+	private boolean _percentileHistogram;
+
+	private final Map<String, Timer> _timerMap = new ConcurrentHashMap<>();
+
+	private static final String _METRIC_NAME = "openk9.search.stage";
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.metrics;
+
+import java.util.function.Supplier;
+
+public class SearchTrace {
+
+	public SearchTrace() {
+		_startNanos = System.nanoTime();
+		_requestSentNanos = _startNanos;
+	}
+
+	public long getStartNanos() {
+		return _startNanos;
+	}
+
+	public long getRequestSentNanos() {
+		return _requestSentNanos;
+	}
+
+	public String getQuery() {
+
+		Supplier<String> querySupplier = _querySupplier;
+
+		return querySupplier != null ? querySupplier.get() : null;
+
+	}
+
+	public void requestSent(Supplier<String> querySupplier) {
+		_requestSentNanos = System.nanoTime();
+		_querySupplier = querySupplier;
+	}
+
+	private final long _startNanos;
+
+	private volatile long _requestSentNanos;
+
+	private volatile Supplier<String> _querySupplier;
+
+}
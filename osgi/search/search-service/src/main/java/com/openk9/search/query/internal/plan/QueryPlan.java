@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.plan;
+
+import com.openk9.ingestion.driver.manager.api.DocumentType;
+import com.openk9.ingestion.driver.manager.api.Highlight;
+import com.openk9.ingestion.driver.manager.api.PluginDriver;
+import com.openk9.search.api.query.SearchToken;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class QueryPlan {
+
+	QueryPlan(
+		long pluginDriverVersion, long documentTypeVersion,
+		long[] datasourceIds,
+		List<Map.Entry<PluginDriver, List<DocumentType>>> documentTypeList,
+		String[] indexNames, Map<String, Highlight> highlightMap,
+		Map<String, Float> keywordBoostMap, String[] sourceExcludes,
+		Map<String, String[]> suggestFieldMap) {
+
+		_pluginDriverVersion = pluginDriverVersion;
+		_documentTypeVersion = documentTypeVersion;
+		_datasourceIds = datasourceIds;
+		_documentTypeList = documentTypeList;
+		_indexNames = indexNames;
+		_highlightBuilder = _createHighlightBuilder(highlightMap);
+		_highlightTemplateParam = _createHighlightTemplateParam(highlightMap);
+		_keywordBoostMap = keywordBoostMap;
+		_sourceExcludes = sourceExcludes;
+		_suggestFieldMap = suggestFieldMap;
+	}
+
+	public long[] getDatasourceIds() {
+		return _datasourceIds;
+	}
+
+	public List<Map.Entry<PluginDriver, List<DocumentType>>>
+		getDocumentTypeList() {
+
+		return _documentTypeList;
+	}
+
+	public boolean isEmpty() {
+		return _documentTypeList.isEmpty();
+	}
+
+	public String[] getIndexNames() {
+		return _indexNames;
+	}
+
+	public HighlightBuilder getHighlightBuilder() {
+		return _highlightBuilder;
+	}
+
+	public Map<String, Object> getHighlightTemplateParam() {
+		return _highlightTemplateParam;
+	}
+
+	public Map<String, Float> getKeywordBoostMap() {
+		return _keywordBoostMap;
+	}
+
+	public Map<String, Float> getKeywordBoostMap(String keywordKey) {
+
+		if (keywordKey == null || keywordKey.isEmpty()) {
+			return _keywordBoostMap;
+		}
+
+		Float boost = _keywordBoostMap.get(keywordKey);
+
+		if (boost == null) {
+			return Collections.emptyMap();
+		}
+
+		return _keywordKeyBoostMap.computeIfAbsent(
+			keywordKey, key -> Map.of(key, boost));
+
+	}
+
+	public String[] getSourceExcludes() {
+		return _sourceExcludes;
+	}
+
+	public Map<String, String[]> getSuggestFieldMap() {
+		return _suggestFieldMap;
+	}
+
+	public static boolean hasTextValues(List<SearchToken> textTokens) {
+
+		if (textTokens == null) {
+			return false;
+		}
+
+		for (SearchToken searchToken : textTokens) {
+			if (searchToken.getValues().length > 0) {
+				return true;
+			}
+		}
+
+		return false;
+
+	}
+
+	boolean isStale(long pluginDriverVersion, long documentTypeVersion) {
+		return _pluginDriverVersion != pluginDriverVersion ||
+			   _documentTypeVersion != documentTypeVersion;
+	}
+
+	private static HighlightBuilder _createHighlightBuilder(
+		Map<String, Highlight> highlightMap) {
+
+		HighlightBuilder highlightBuilder = new HighlightBuilder();
+
+		for (Map.Entry<String, Highlight> entry : highlightMap.entrySet()) {
+
+			Highlight highlight = entry.getValue();
+
+			highlightBuilder.field(
+				new HighlightBuilder.Field(entry.getKey())
+					.highlighterType(highlight.getHighlightType().getType())
+					.fragmentSize(highlight.getFragmentSize())
+					.numOfFragments(highlight.getNumberOfFragments()));
+
+		}
+
+		highlightBuilder.tagsSchema("default");
+
+		return highlightBuilder;
+
+	}
+
+	private static Map<String, Object> _createHighlightTemplateParam(
+		Map<String, Highlight> highlightMap) {
+
+		Map<String, Object> fields = new LinkedHashMap<>();
+
+		for (Map.Entry<String, Highlight> entry : highlightMap.entrySet()) {
+
+			Highlight highlight = entry.getValue();
+
+			fields.put(
+				entry.getKey(),
+				Map.of(
+					"type", highlight.getHighlightType().getType(),
+					"fragment_size", highlight.getFragmentSize(),
+					"number_of_fragments", highlight.getNumberOfFragments()));
+
+		}
+
+		return Collections.unmodifiableMap(fields);
+
+	}
+
+	private final long _pluginDriverVersion;
+	private final long _documentTypeVersion;
+	private final long[] _datasourceIds;
+	private final List<Map.Entry<PluginDriver, List<DocumentType>>>
+		_documentTypeList;
+	private final String[] _indexNames;
+	private final HighlightBuilder _highlightBuilder;
+	private final Map<String, Object> _highlightTemplateParam;
+	private final Map<String, Float> _keywordBoostMap;
+	private final String[] _sourceExcludes;
+	private final Map<String, String[]> _suggestFieldMap;
+	private final Map<String, Map<String, Float>> _keywordKeyBoostMap =
+		new ConcurrentHashMap<>();
+
+}
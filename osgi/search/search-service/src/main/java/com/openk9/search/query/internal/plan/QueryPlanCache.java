@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.plan;
+
+import com.openk9.datasource.util.ActiveDatasources;
+import com.openk9.ingestion.driver.manager.api.DocumentType;
+import com.openk9.ingestion.driver.manager.api.DocumentTypeProvider;
+import com.openk9.ingestion.driver.manager.api.Highlight;
+import com.openk9.ingestion.driver.manager.api.PluginDriver;
+import com.openk9.ingestion.driver.manager.api.PluginDriverRegistry;
+import com.openk9.ingestion.driver.manager.api.SearchKeyword;
+import com.openk9.search.api.query.SearchToken;
+import com.openk9.search.client.api.mapping.Field;
+import com.openk9.search.client.api.mapping.FieldType;
+import com.openk9.search.client.api.mapping.SuggestField;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component(
+	immediate = true,
+	service = QueryPlanCache.class
+)
+public class QueryPlanCache {
+
+	@interface Config {
+		int maxSize() default 1_000;
+	}
+
+	@Activate
+	public void activate(Config config) {
+		_maxSize = config.maxSize();
+	}
+
+	@Modified
+	public void modified(Config config) {
+		_queryPlanMap.clear();
+		activate(config);
+	}
+
+	public QueryPlan getQueryPlan(
+		ActiveDatasources activeDatasources,
+		List<SearchToken> datasourceTokens) {
+
+		String[] datasourceFilter = null;
+
+		if (datasourceTokens != null) {
+
+			Set<String> datasourceValues = new TreeSet<>();
+
+			for (SearchToken datasourceToken : datasourceTokens) {
+				Collections.addAll(
+					datasourceValues, datasourceToken.getValues());
+			}
+
+			datasourceFilter = datasourceValues.toArray(String[]::new);
+
+		}
+
+		QueryPlanKey queryPlanKey = QueryPlanKey.of(
+			activeDatasources.getTenantId(),
+			activeDatasources.getDatasourceIds(),
+			activeDatasources.getDriverServiceNames(), datasourceFilter);
+
+		long pluginDriverVersion = _pluginDriverRegistry.getVersion();
+
+		long documentTypeVersion = _documentTypeProvider.getVersion();
+
+		QueryPlan queryPlan = _queryPlanMap.get(queryPlanKey);
+
+		if (queryPlan != null &&
+			!queryPlan.isStale(pluginDriverVersion, documentTypeVersion)) {
+
+			return queryPlan;
+		}
+
+		queryPlan = _createQueryPlan(
+			pluginDriverVersion, documentTypeVersion,
+			activeDatasources.getDatasourceIds(),
+			Arrays.asList(activeDatasources.getDriverServiceNames()),
+			datasourceFilter);
+
+		if (_queryPlanMap.size() >= _maxSize) {
+			_queryPlanMap.clear();
+		}
+
+		_queryPlanMap.put(queryPlanKey, queryPlan);
+
+		return queryPlan;
+
+	}
+
+	public boolean isCurrent(QueryPlan queryPlan) {
+		return !queryPlan.isStale(
+			_pluginDriverRegistry.getVersion(),
+			_documentTypeProvider.getVersion());
+	}
+
+	private QueryPlan _createQueryPlan(
+		long pluginDriverVersion, long documentTypeVersion,
+		long[] datasourceIds, Collection<String> driverServiceNames,
+		String[] datasourceFilter) {
+
+		Collection<PluginDriver> pluginDriverList =
+			_pluginDriverRegistry.getPluginDriverList(driverServiceNames);
+
+		List<Map.Entry<PluginDriver, List<DocumentType>>> documentTypeList =
+			new ArrayList<>(pluginDriverList.size());
+
+		for (PluginDriver pluginDriver : pluginDriverList) {
+
+			if (datasourceFilter != null &&
+				Arrays.binarySearch(
+					datasourceFilter, pluginDriver.getName()) < 0) {
+
+				continue;
+			}
+
+			List<DocumentType> supportedDocumentTypes =
+				_documentTypeProvider.getDocumentTypeList(
+					pluginDriver.getName());
+
+			if (supportedDocumentTypes.isEmpty()) {
+				supportedDocumentTypes = Collections.singletonList(
+					_documentTypeProvider.getDefaultDocumentType(
+						pluginDriver.getName()));
+			}
+
+			documentTypeList.add(
+				new AbstractMap.SimpleImmutableEntry<>(
+					pluginDriver,
+					Collections.unmodifiableList(
+						new ArrayList<>(supportedDocumentTypes))));
+
+		}
+
+		String[] indexNames;
+
+		if (datasourceFilter != null) {
+			indexNames = documentTypeList
+				.stream()
+				.map(Map.Entry::getKey)
+				.map(PluginDriver::getName)
+				.distinct()
+				.toArray(String[]::new);
+		}
+		else {
+			indexNames = _ALL_INDEX_NAMES;
+		}
+
+		Map<String, Highlight> highlightMap = new LinkedHashMap<>();
+
+		Map<String, Float> keywordBoostMap = new LinkedHashMap<>();
+
+		Map<String, String[]> suggestFieldMap = new LinkedHashMap<>();
+
+		for (Map.Entry<PluginDriver, List<DocumentType>> entry
+			: documentTypeList) {
+
+			Set<String> suggestFields = new LinkedHashSet<>();
+
+			for (DocumentType documentType : entry.getValue()) {
+
+				Map<String, Field> sourceFieldPaths =
+					_getSourceFieldPaths(documentType);
+
+				for (SearchKeyword searchKeyword
+					: documentType.getSearchKeywords()) {
+
+					if (!searchKeyword.isText()) {
+						continue;
+					}
+
+					highlightMap.putIfAbsent(
+						searchKeyword.getKeyword(), searchKeyword.getHighlight());
+
+					Field sourceField = sourceFieldPaths.get(
+						searchKeyword.getKeyword());
+
+					if (searchKeyword.isSuggest() && sourceField != null &&
+						sourceField.getFieldType() == FieldType.TEXT) {
+
+						suggestFields.add(
+							SuggestField.of(searchKeyword.getKeyword()));
+					}
+
+					Map.Entry<String, Float> fieldBoost =
+						searchKeyword.getFieldBoost();
+
+					keywordBoostMap.putIfAbsent(
+						fieldBoost.getKey(), fieldBoost.getValue());
+
+				}
+
+			}
+
+			if (!suggestFields.isEmpty()) {
+				suggestFieldMap.put(
+					entry.getKey().getName(),
+					suggestFields.toArray(String[]::new));
+			}
+
+		}
+
+		return new QueryPlan(
+			pluginDriverVersion, documentTypeVersion, datasourceIds,
+			Collections.unmodifiableList(documentTypeList), indexNames,
+			Collections.unmodifiableMap(highlightMap),
+			Collections.unmodifiableMap(keywordBoostMap),
+			_DEFAULT_SOURCE_EXCLUDES,
+			Collections.unmodifiableMap(suggestFieldMap));
+
+	}
+
+	private Map<String, Field> _getSourceFieldPaths(
+		DocumentType documentType) {
+
+		String name = documentType.getName();
+
+		List<Field> sourceFields = documentType.getSourceFields();
+
+		if (name == null || name.isEmpty() || sourceFields == null) {
+			return Collections.emptyMap();
+		}
+
+		Map<String, Field> sourceFieldPaths = new LinkedHashMap<>();
+
+		for (Field field : sourceFields) {
+
+			StringBuilder path = new StringBuilder(name);
+
+			Field leaf = field;
+
+			while (field != null && field != Field.NIL) {
+				path.append('.').append(field.getName());
+				leaf = field;
+				field = field.getChild();
+			}
+
+			sourceFieldPaths.put(path.toString(), leaf);
+
+		}
+
+		return sourceFieldPaths;
+
+	}
+
+	@EqualsAndHashCode
+	@AllArgsConstructor(staticName = "of")
+	private static class QueryPlanKey {
+		private final long tenantId;
+		private final long[] datasourceIds;
+		private final String[] driverServiceNames;
+		private final String[] datasourceFilter;
+	}
+
+	private int _maxSize;
+
+	private final Map<QueryPlanKey, QueryPlan> _queryPlanMap =
+		new ConcurrentHashMap<>();
+
+	@Reference
+	private PluginDriverRegistry _pluginDriverRegistry;
+
+	@Reference
+	private DocumentTypeProvider _documentTypeProvider;
+
+	private static final String[] _ALL_INDEX_NAMES = {"*"};
+
+	private static final String[] _DEFAULT_SOURCE_EXCLUDES = {"rawContent"};
+
+}
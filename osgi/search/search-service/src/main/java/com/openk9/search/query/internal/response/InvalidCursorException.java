@@ -17,17 +17,14 @@
 
 package com.openk9.search.query.internal.response;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.EqualsAndHashCode;
-import lombok.NoArgsConstructor;
+public class InvalidCursorException extends IllegalArgumentException {
+
+	public InvalidCursorException(String cursor) {
+		super("invalid cursor: " + cursor);
+	}
+
+	public InvalidCursorException(String cursor, Throwable cause) {
+		super("invalid cursor: " + cursor, cause);
+	}
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class WebSocketResponse {
-	private Object result;
-	long total;
-	boolean last;
-	private String scrollId;
 }
@@ -28,4 +28,10 @@ public class Response {
 	private Object result;
 	long total;
 	boolean last;
+	boolean partial;
+
+	public Response(Object result, long total, boolean last) {
+		this(result, total, last, false);
+	}
+
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.response;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+public class SearchCursor {
+
+	public static String encode(Object[] sortValues) {
+
+		if (sortValues == null || sortValues.length == 0) {
+			return null;
+		}
+
+		try (ByteArrayBuilder byteArrayBuilder = new ByteArrayBuilder();
+			 JsonGenerator generator =
+				 _jsonFactory.createGenerator(byteArrayBuilder)) {
+
+			generator.writeStartArray();
+
+			for (Object sortValue : sortValues) {
+				generator.writeObject(sortValue);
+			}
+
+			generator.writeEndArray();
+
+			generator.flush();
+
+			return _ENCODER.encodeToString(byteArrayBuilder.toByteArray());
+
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+	}
+
+	public static Object[] decode(String cursor) {
+
+		byte[] bytes;
+
+		try {
+			bytes = _DECODER.decode(cursor);
+		}
+		catch (IllegalArgumentException e) {
+			throw new InvalidCursorException(cursor, e);
+		}
+
+		try (JsonParser parser = _jsonFactory.createParser(bytes)) {
+
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new InvalidCursorException(cursor);
+			}
+
+			List<Object> sortValues = new ArrayList<>();
+
+			JsonToken token;
+
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+
+				if (token == null) {
+					throw new InvalidCursorException(cursor);
+				}
+
+				switch (token) {
+					case VALUE_NUMBER_INT:
+					case VALUE_NUMBER_FLOAT:
+						sortValues.add(parser.getNumberValue());
+						break;
+					case VALUE_TRUE:
+					case VALUE_FALSE:
+						sortValues.add(parser.getBooleanValue());
+						break;
+					case VALUE_NULL:
+						sortValues.add(null);
+						break;
+					default:
+						sortValues.add(parser.getText());
+				}
+
+			}
+
+			return sortValues.toArray();
+
+		}
+		catch (IOException e) {
+			throw new InvalidCursorException(cursor, e);
+		}
+
+	}
+
+	private static final JsonFactory _jsonFactory = new JsonFactory();
+
+	private static final Base64.Encoder _ENCODER =
+		Base64.getUrlEncoder().withoutPadding();
+
+	private static final Base64.Decoder _DECODER = Base64.getUrlDecoder();
+
+}
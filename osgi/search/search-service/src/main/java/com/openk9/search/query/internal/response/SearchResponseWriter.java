@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.response;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.BufferRecycler;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.openk9.search.client.api.util.SearchUtil;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+import org.osgi.service.component.annotations.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+@Component(
+	immediate = true,
+	service = SearchResponseWriter.class
+)
+public class SearchResponseWriter {
+
+	public byte[] write(SearchHits hits) {
+		return _write(hits, null, null, false, null);
+	}
+
+	public byte[] write(SearchHits hits, String scrollId) {
+		return _write(hits, "scrollId", scrollId, false, null);
+	}
+
+	public byte[] writeWithCursor(SearchResponse searchResponse, int size) {
+
+		SearchHits hits = searchResponse.getHits();
+
+		SearchHit[] searchHits = hits.getHits();
+
+		String cursor = null;
+
+		if (searchHits.length > 0 && searchHits.length >= size) {
+			cursor = SearchCursor.encode(
+				searchHits[searchHits.length - 1].getSortValues());
+		}
+
+		Aggregations aggregations =
+			searchResponse == SearchUtil.EMPTY_SEARCH_RESPONSE
+				? null : searchResponse.getAggregations();
+
+		return _write(
+			hits, "cursor", cursor, SearchUtil.isPartial(searchResponse),
+			aggregations);
+
+	}
+
+	public byte[] writeTimedOut() {
+		return _TIMED_OUT;
+	}
+
+	private byte[] _write(
+		SearchHits hits, String extraFieldName, String extraFieldValue,
+		boolean partial, Aggregations aggregations) {
+
+		ByteArrayBuilder byteArrayBuilder =
+			new ByteArrayBuilder(_bufferRecyclerThreadLocal.get());
+
+		try {
+
+			try (JsonGenerator generator = _jsonFactory.createGenerator(
+					byteArrayBuilder, JsonEncoding.UTF8)) {
+
+				generator.writeStartObject();
+
+				generator.writeArrayFieldStart("result");
+
+				for (SearchHit hit : hits.getHits()) {
+					_writeHit(generator, hit);
+				}
+
+				generator.writeEndArray();
+
+				TotalHits totalHits = hits.getTotalHits();
+
+				generator.writeNumberField("total", totalHits.value);
+
+				generator.writeBooleanField(
+					"last", totalHits.relation == TotalHits.Relation.EQUAL_TO);
+
+				if (extraFieldName != null) {
+					generator.writeStringField(
+						extraFieldName, extraFieldValue);
+				}
+
+				generator.writeBooleanField("partial", partial);
+
+				if (aggregations != null) {
+					_writeFacets(generator, aggregations);
+				}
+
+				generator.writeEndObject();
+
+			}
+
+			return byteArrayBuilder.toByteArray();
+
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			byteArrayBuilder.release();
+		}
+
+	}
+
+	private void _writeFacets(
+			JsonGenerator generator, Aggregations aggregations)
+		throws IOException {
+
+		generator.writeObjectFieldStart("facets");
+
+		for (Aggregation aggregation : aggregations) {
+
+			if (!(aggregation instanceof MultiBucketsAggregation)) {
+				continue;
+			}
+
+			List<MultiBucketsAggregation.Bucket> buckets = new ArrayList<>(
+				((MultiBucketsAggregation)aggregation).getBuckets());
+
+			buckets.sort(
+				Comparator.comparingLong(
+					MultiBucketsAggregation.Bucket::getDocCount).reversed());
+
+			generator.writeArrayFieldStart(aggregation.getName());
+
+			for (MultiBucketsAggregation.Bucket bucket : buckets) {
+
+				if (bucket.getDocCount() == 0) {
+					continue;
+				}
+
+				generator.writeStartObject();
+				generator.writeStringField("value", bucket.getKeyAsString());
+				generator.writeNumberField("count", bucket.getDocCount());
+				generator.writeEndObject();
+			}
+
+			generator.writeEndArray();
+
+		}
+
+		generator.writeEndObject();
+
+	}
+
+	private void _writeHit(JsonGenerator generator, SearchHit hit)
+		throws IOException {
+
+		generator.writeStartObject();
+
+		generator.writeFieldName("source");
+
+		generator.writeStartObject();
+
+		BytesReference sourceRef = hit.getSourceRef();
+
+		if (sourceRef != null) {
+
+			try (JsonParser parser = _jsonFactory.createParser(
+					sourceRef.streamInput())) {
+
+				if (parser.nextToken() == JsonToken.START_OBJECT) {
+					while (parser.nextToken() == JsonToken.FIELD_NAME) {
+						if (!"id".equals(parser.getCurrentName())) {
+							generator.copyCurrentStructure(parser);
+						}
+						else {
+							parser.nextToken();
+							parser.skipChildren();
+						}
+					}
+				}
+
+			}
+
+		}
+
+		generator.writeStringField("id", hit.getId());
+
+		generator.writeEndObject();
+
+		generator.writeObjectFieldStart("highlight");
+
+		for (Map.Entry<String, HighlightField> entry
+			: hit.getHighlightFields().entrySet()) {
+
+			HighlightField highlightField = entry.getValue();
+
+			generator.writeArrayFieldStart(highlightField.getName());
+
+			for (Text fragment : highlightField.getFragments()) {
+				generator.writeString(fragment.string());
+			}
+
+			generator.writeEndArray();
+
+		}
+
+		generator.writeEndObject();
+
+		generator.writeEndObject();
+
+	}
+
+	private final JsonFactory _jsonFactory = new JsonFactory();
+
+	private static final byte[] _TIMED_OUT =
+		("{\"result\":[],\"total\":0,\"last\":false,\"partial\":true," +
+			"\"timedOut\":true}").getBytes(StandardCharsets.UTF_8);
+
+	private static final ThreadLocal<BufferRecycler>
+		_bufferRecyclerThreadLocal =
+			ThreadLocal.withInitial(BufferRecycler::new);
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.slowlog;
+
+import com.openk9.search.api.query.SearchToken;
+import com.openk9.search.client.api.util.SearchUtil;
+import com.openk9.search.query.internal.metrics.SearchTrace;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHits;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@Component(
+	immediate = true,
+	service = SlowQueryRecorder.class
+)
+public class SlowQueryRecorder {
+
+	@interface Config {
+		boolean enabled() default false;
+		long thresholdMs() default 500;
+		double sampleRate() default 1.0;
+		int capacity() default 200;
+	}
+
+	@Activate
+	public void activate(Config config) {
+
+		_enabled = config.enabled();
+		_thresholdMs = config.thresholdMs();
+		_sampleRate = config.sampleRate();
+		_capacity = Math.max(1, config.capacity());
+
+		if (!_enabled) {
+			_slowQueriesMap.clear();
+			return;
+		}
+
+		for (Deque<SlowQuery> slowQueries : _slowQueriesMap.values()) {
+			synchronized (slowQueries) {
+				while (slowQueries.size() > _capacity) {
+					slowQueries.removeFirst();
+				}
+			}
+		}
+
+	}
+
+	@Modified
+	public void modified(Config config) {
+		activate(config);
+	}
+
+	public void record(
+		long tenantId, List<SearchToken> searchQuery, SearchTrace searchTrace,
+		SearchResponse searchResponse, int responseBytes) {
+
+		if (!_enabled || SearchUtil.isSynthetic(searchResponse) ||
+			searchResponse.getTook() == null) {
+
+			return;
+		}
+
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(
+			System.nanoTime() - searchTrace.getStartNanos());
+
+		long tookMs = searchResponse.getTook().millis();
+
+		if (Math.max(elapsedMs, tookMs) < _thresholdMs) {
+			return;
+		}
+
+		if (_sampleRate < 1.0 &&
+			ThreadLocalRandom.current().nextDouble() >= _sampleRate) {
+
+			return;
+		}
+
+		SearchHits hits = searchResponse.getHits();
+
+		SlowQuery slowQuery = new SlowQuery(
+			System.currentTimeMillis(), tenantId, searchQuery,
+			searchTrace.getQuery(), tookMs, elapsedMs,
+			hits.getTotalHits() != null ? hits.getTotalHits().value : 0,
+			hits.getHits().length, responseBytes,
+			SearchUtil.isPartial(searchResponse));
+
+		Deque<SlowQuery> slowQueries = _slowQueriesMap.computeIfAbsent(
+			tenantId, key -> new ArrayDeque<>());
+
+		synchronized (slowQueries) {
+
+			if (slowQueries.size() >= _capacity) {
+				slowQueries.removeFirst();
+			}
+
+			slowQueries.addLast(slowQuery);
+
+		}
+
+	}
+
+	public List<SlowQuery> getSlowQueries(long tenantId) {
+
+		Deque<SlowQuery> slowQueries = _slowQueriesMap.get(tenantId);
+
+		if (slowQueries == null) {
+			return Collections.emptyList();
+		}
+
+		List<SlowQuery> result = new ArrayList<>();
+
+		synchronized (slowQueries) {
+
+			Iterator<SlowQuery> iterator = slowQueries.descendingIterator();
+
+			while (iterator.hasNext()) {
+				result.add(iterator.next());
+			}
+
+		}
+
+		return result;
+
+	}
+
+	private volatile boolean _enabled;
+
+	private volatile long _thresholdMs;
+
+	private volatile double _sampleRate;
+
+	private volatile int _capacity;
+
+	private final Map<Long, Deque<SlowQuery>> _slowQueriesMap =
+		new ConcurrentHashMap<>();
+
+}
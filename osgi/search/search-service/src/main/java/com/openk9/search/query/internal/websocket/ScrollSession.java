@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.websocket;
+
+import com.openk9.search.client.api.util.SearchUtil;
+import org.elasticsearch.action.search.SearchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+public class ScrollSession {
+
+	ScrollSession(
+		ScrollSessionManager scrollSessionManager, String sessionId,
+		boolean prefetch) {
+
+		_scrollSessionManager = scrollSessionManager;
+		_sessionId = sessionId;
+		_prefetch = prefetch;
+	}
+
+	public String getSessionId() {
+		return _sessionId;
+	}
+
+	public Mono<SearchResponse> search(Mono<SearchResponse> searchMono) {
+
+		long generation;
+
+		synchronized (this) {
+
+			if (_closed) {
+				return Mono.empty();
+			}
+
+			_release();
+
+			generation = _generation;
+
+		}
+
+		return _eager(
+			searchMono.doOnNext(
+				response -> _track(generation, response, true)))
+			.doOnNext(response -> _startPrefetch(generation, response));
+
+	}
+
+	public Mono<SearchResponse> next() {
+
+		Mono<SearchResponse> page;
+
+		long generation;
+
+		synchronized (this) {
+
+			generation = _generation;
+
+			if (_prefetchMono != null) {
+				page = _prefetchMono;
+				_prefetchMono = null;
+			}
+			else if (_scrollId != null) {
+				page = _scroll(generation, _scrollId);
+			}
+			else {
+				return Mono.just(SearchUtil.EMPTY_SEARCH_RESPONSE);
+			}
+
+		}
+
+		return page.doOnNext(
+			response -> _startPrefetch(generation, response));
+
+	}
+
+	public synchronized void release() {
+		_release();
+	}
+
+	synchronized void close() {
+
+		if (_closed) {
+			return;
+		}
+
+		_closed = true;
+
+		_release();
+
+	}
+
+	private void _release() {
+
+		_generation++;
+
+		_prefetchMono = null;
+
+		if (_scrollId != null) {
+			_scrollSessionManager.clearScroll(_scrollId);
+			_scrollId = null;
+		}
+
+	}
+
+	private synchronized void _track(
+		long generation, SearchResponse response, boolean newContext) {
+
+		String scrollId = response.getScrollId();
+
+		if (scrollId == null) {
+			return;
+		}
+
+		if (newContext) {
+			_scrollSessionManager.contextOpened();
+		}
+
+		if (_closed || generation != _generation) {
+			if (newContext) {
+				_scrollSessionManager.clearScroll(scrollId);
+			}
+			return;
+		}
+
+		if (response.getHits().getHits().length == 0) {
+			_scrollSessionManager.clearScroll(scrollId);
+			_scrollId = null;
+		}
+		else {
+			_scrollId = scrollId;
+		}
+
+	}
+
+	private synchronized void _startPrefetch(
+		long generation, SearchResponse response) {
+
+		if (!_prefetch || _closed || generation != _generation ||
+			_prefetchMono != null || _scrollId == null ||
+			response.getHits().getHits().length == 0) {
+
+			return;
+		}
+
+		_prefetchMono = _scroll(generation, _scrollId);
+
+	}
+
+	private Mono<SearchResponse> _scroll(long generation, String scrollId) {
+		return _eager(
+			_scrollSessionManager
+				.scroll(scrollId)
+				.doOnNext(response -> _track(generation, response, false)));
+	}
+
+	private Mono<SearchResponse> _eager(Mono<SearchResponse> mono) {
+
+		Mono<SearchResponse> cached = mono.cache();
+
+		cached.subscribe(
+			response -> {},
+			throwable -> _log.warn(
+				"scroll session " + _sessionId + " failed: " +
+				throwable.getMessage()));
+
+		return cached;
+
+	}
+
+	private final ScrollSessionManager _scrollSessionManager;
+	private final String _sessionId;
+	private final boolean _prefetch;
+	private String _scrollId;
+	private Mono<SearchResponse> _prefetchMono;
+	private long _generation;
+	private boolean _closed;
+
+	private static final Logger _log = LoggerFactory.getLogger(
+		ScrollSession.class);
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.websocket;
+
+import com.openk9.search.client.api.ReactorActionListener;
+import com.openk9.search.client.api.RestHighLevelClientProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component(
+	immediate = true,
+	service = ScrollSessionManager.class
+)
+public class ScrollSessionManager {
+
+	@interface Config {
+		long keepAliveSeconds() default 120;
+		boolean prefetch() default true;
+	}
+
+	@Activate
+	public void activate(Config config) {
+		_keepAlive = TimeValue.timeValueSeconds(config.keepAliveSeconds());
+		_prefetch = config.prefetch();
+		_openContextsGauge = Gauge
+			.builder(
+				"openk9.search.websocket.scroll.contexts", _openContexts,
+				AtomicInteger::get)
+			.register(Metrics.globalRegistry);
+	}
+
+	@Modified
+	public void modified(Config config) {
+		deactivate();
+		activate(config);
+	}
+
+	@Deactivate
+	public void deactivate() {
+
+		for (ScrollSession scrollSession
+			: new ArrayList<>(_scrollSessionMap.values())) {
+
+			close(scrollSession);
+		}
+
+		if (_openContextsGauge != null) {
+			Metrics.globalRegistry.remove(_openContextsGauge);
+			_openContextsGauge = null;
+		}
+
+	}
+
+	public ScrollSession open(String sessionId) {
+
+		ScrollSession scrollSession = new ScrollSession(
+			this, sessionId, _prefetch);
+
+		ScrollSession previous = _scrollSessionMap.put(
+			sessionId, scrollSession);
+
+		if (previous != null) {
+			previous.close();
+		}
+
+		return scrollSession;
+
+	}
+
+	public void close(ScrollSession scrollSession) {
+		_scrollSessionMap.remove(scrollSession.getSessionId(), scrollSession);
+		scrollSession.close();
+	}
+
+	public int getOpenContexts() {
+		return _openContexts.get();
+	}
+
+	Mono<SearchResponse> scroll(String scrollId) {
+		return Mono.create(
+			sink -> _restHighLevelClientProvider
+				.get()
+				.scrollAsync(
+					new SearchScrollRequest(scrollId).scroll(_keepAlive),
+					RequestOptions.DEFAULT,
+					new ReactorActionListener<>(sink)));
+	}
+
+	TimeValue getKeepAlive() {
+		return _keepAlive;
+	}
+
+	void contextOpened() {
+		_openContexts.incrementAndGet();
+	}
+
+	void clearScroll(String scrollId) {
+
+		_openContexts.decrementAndGet();
+
+		ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+
+		clearScrollRequest.addScrollId(scrollId);
+
+		Mono
+			.<ClearScrollResponse>create(
+				sink -> _restHighLevelClientProvider
+					.get()
+					.clearScrollAsync(
+						clearScrollRequest, RequestOptions.DEFAULT,
+						new ReactorActionListener<>(sink)))
+			.subscribe(
+				response -> {},
+				throwable -> _log.warn(
+					"clear scroll failed: " + throwable.getMessage()));
+
+	}
+
+	private TimeValue _keepAlive;
+
+	private boolean _prefetch;
+
+	private Gauge _openContextsGauge;
+
+	private final AtomicInteger _openContexts = new AtomicInteger();
+
+	private final Map<String, ScrollSession> _scrollSessionMap =
+		new ConcurrentHashMap<>();
+
+	@Reference
+	private RestHighLevelClientProvider _restHighLevelClientProvider;
+
+	private static final Logger _log = LoggerFactory.getLogger(
+		ScrollSessionManager.class);
+
+}
@@ -17,42 +17,30 @@
 
 package com.openk9.search.query.internal.websocket;
 
-import com.openk9.json.api.JsonFactory;
-import com.openk9.ingestion.driver.manager.api.DocumentType;
-import com.openk9.ingestion.driver.manager.api.DocumentTypeProvider;
-import com.openk9.ingestion.driver.manager.api.PluginDriver;
-import com.openk9.ingestion.driver.manager.api.PluginDriverRegistry;
-import com.openk9.ingestion.driver.manager.api.SearchKeyword;
+import com.openk9.datasource.cache.ActiveDatasourceCache;
+import com.openk9.datasource.model.Tenant;
+import com.openk9.datasource.repository.TenantRepository;
 import com.openk9.http.socket.WebSocketHandler;
 import com.openk9.http.socket.WebSocketMessage;
 import com.openk9.http.socket.WebSocketSession;
+import com.openk9.http.util.HttpUtil;
 import com.openk9.http.web.Endpoint;
+import com.openk9.json.api.JsonFactory;
 import com.openk9.search.api.query.SearchToken;
-import com.openk9.search.client.api.ReactorActionListener;
-import com.openk9.search.client.api.RestHighLevelClientProvider;
 import com.openk9.search.client.api.Search;
 import com.openk9.search.client.api.util.SearchUtil;
-import com.openk9.search.query.internal.response.WebSocketResponse;
+import com.openk9.search.query.internal.plan.QueryPlan;
+import com.openk9.search.query.internal.plan.QueryPlanCache;
+import com.openk9.search.query.internal.response.SearchResponseWriter;
 import lombok.Data;
-import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.join.ScoreMode;
-import org.elasticsearch.action.search.ClearScrollRequest;
-import org.elasticsearch.action.search.ClearScrollResponse;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.action.search.SearchScrollRequest;
-import org.elasticsearch.client.RequestOptions;
-import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.common.text.Text;
-import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.MultiMatchQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
-import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
-import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.reactivestreams.Publisher;
@@ -61,12 +49,8 @@ import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -87,180 +71,84 @@ public class SearchWebSocketHandler implements WebSocketHandler {
 	@Override
 	public Publisher<Void> apply(WebSocketSession webSocketSession) {
 
-		return Flux
+		String hostName = HttpUtil.getHostName(webSocketSession);
+
+		return _tenantRepository
+			.findByVirtualHost(hostName)
+			.switchIfEmpty(
+				Mono.error(
+					() -> new RuntimeException(
+						"tenant not found for virtualhost: " + hostName)))
+			.map(Tenant::getTenantId)
+			.flatMap(_activeDatasourceCache::getActiveDatasources)
+			.map(activeDatasources -> new SessionQueryPlan(
+				_queryPlanCache, activeDatasources))
+			.flatMapMany(sessionQueryPlan -> _handleSession(
+				webSocketSession, sessionQueryPlan));
+
+	}
+
+	private Flux<Void> _handleSession(
+		WebSocketSession webSocketSession,
+		SessionQueryPlan sessionQueryPlan) {
+
+		ScrollSession scrollSession = _scrollSessionManager.open(
+			webSocketSession.getSessionId());
+
+		Flux<WebSocketMessage> responses = Flux
 			.from(webSocketSession.receive())
 			.map(WebSocketMessage::getPayloadAsString)
 			.map(message -> _jsonFactory.fromJson(message, Message.class))
 			.switchMap(message -> {
 				switch (message.type) {
 					case SEARCH:
-						return _toQuerySearchRequest(1, message);
+						return scrollSession.search(
+							_toQuerySearchRequest(sessionQueryPlan, message));
 					case CLOSE:
-
-						RestHighLevelClient restHighLevelClient =
-							_restHighLevelClientProvider.get();
-
-						ClearScrollRequest clearScrollRequest =
-							new ClearScrollRequest();
-
-						clearScrollRequest.addScrollId(message.scrollId);
-
-						return Mono.<ClearScrollResponse>create(sink ->
-							restHighLevelClient.clearScrollAsync(
-								clearScrollRequest, RequestOptions.DEFAULT,
-								new ReactorActionListener<>(sink)));
-
+						return Mono.fromRunnable(scrollSession::release);
 					case CONTINUE:
-						return Mono.<SearchResponse>create(
-							sink -> _restHighLevelClientProvider
-								.get()
-								.scrollAsync(
-									new SearchScrollRequest(message.scrollId)
-										.scroll(TimeValue.timeValueMinutes(2)),
-									RequestOptions.DEFAULT,
-									new ReactorActionListener<>(sink)
-								)
-						);
+						return scrollSession.next();
 				}
 
 				return Mono.just(SearchUtil.EMPTY_SEARCH_RESPONSE);
 
 			})
 			.ofType(SearchResponse.class)
-			.map(response -> _searchHitToResponse(response.getHits(), response.getScrollId()))
-			.map(_jsonFactory::toJson)
-			.map(webSocketSession::textMessage)
-			.transform(webSocketSession::send);
-
-	}
-
-	private WebSocketResponse _searchHitToResponse(SearchHits hits, String scrollId) {
-
-		List<Map<String, Object>> result = new ArrayList<>();
-
-		for (SearchHit hit : hits.getHits()) {
+			.map(response -> _searchResponseWriter.write(
+				response.getHits(), response.getScrollId()))
+			.map(bytes -> new String(bytes, StandardCharsets.UTF_8))
+			.map(webSocketSession::textMessage);
 
-			Map<String, Object> sourceAsMap = hit.getSourceAsMap();
-
-			Map<String, Object> sourceMap = new HashMap<>(
-				sourceAsMap.size() + 1, 1);
-
-			sourceMap.putAll(sourceAsMap);
-
-			sourceMap.put("id", hit.getId());
-
-			Map<String, HighlightField> highlightFields =
-				hit.getHighlightFields();
-
-			Map<String, Object> highlightMap = new HashMap<>(
-				highlightFields.size(), 1);
-
-			for (HighlightField value : highlightFields.values()) {
-				highlightMap.put(
-					value.getName(),
-					Arrays
-						.stream(value.getFragments())
-						.map(Text::string)
-						.toArray(String[]::new)
-				);
-			}
-
-			Map<String, Object> hitMap = new HashMap<>(2, 1);
-
-			hitMap.put("source", sourceMap);
-			hitMap.put("highlight", highlightMap);
-
-			result.add(hitMap);
-
-		}
-
-		TotalHits totalHits = hits.getTotalHits();
+		return Flux
+			.from(webSocketSession.send(responses))
+			.doFinally(signalType -> _scrollSessionManager.close(scrollSession));
 
-		return new WebSocketResponse(
-			result,
-			totalHits.value,
-			totalHits.relation == TotalHits.Relation.EQUAL_TO,
-			scrollId
-		);
 	}
 
 	private Mono<SearchResponse> _toQuerySearchRequest(
-		long tenantId, Message message) {
+		SessionQueryPlan sessionQueryPlan, Message message) {
 
 		return _search.search(factory -> {
 
-			BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
-
 			Map<String, List<SearchToken>> tokenTypeGroup =
 				message
 					.getSearchTokens()
 					.stream()
 					.collect(Collectors.groupingBy(SearchToken::getTokenType));
 
-			List<SearchToken> datasource = tokenTypeGroup.get("DATASOURCE");
-
-			Collection<PluginDriver> pluginDriverList =
-				_pluginDriverRegistry.getPluginDriverList();
-
-			Map<PluginDriver, List<DocumentType>> pluginDriverListDocumentType =
-				pluginDriverList
-					.stream()
-					.collect(
-						Collectors.toMap(
-							Function.identity(),
-							pd -> {
-
-								List<DocumentType> supportedDocumentTypes =
-									_documentTypeProvider.getDocumentTypeList(
-										pd.getName());
-
-								if (supportedDocumentTypes.isEmpty()) {
-									return Collections.singletonList(
-										_documentTypeProvider
-											.getDefaultDocumentType(
-												pd.getName())
-									);
-								}
-
-								return supportedDocumentTypes;
-							},
-							(o1, o2) -> {
-								throw new IllegalStateException(
-									String.format("Duplicate key %s", o1));
-							},
-							IdentityHashMap::new
-						)
-					);
-
-
-			Stream<Map.Entry<PluginDriver, List<DocumentType>>>
-				documentTypeStream =
-				pluginDriverListDocumentType.entrySet().stream();
-
-			if (datasource != null) {
-
-				List<String> datasourceValues = datasource
-					.stream()
-					.map(SearchToken::getValues)
-					.flatMap(Arrays::stream)
-					.distinct()
-					.collect(Collectors.toList());
-
-				documentTypeStream =
-					documentTypeStream
-						.filter(
-							entry ->
-								datasourceValues.contains(
-									entry.getKey().getName()));
+			QueryPlan queryPlan = sessionQueryPlan.getQueryPlan(
+				tokenTypeGroup.get("DATASOURCE"));
 
+			if (queryPlan.isEmpty()) {
+				return SearchUtil.EMPTY_SEARCH_REQUEST;
 			}
 
-			List<Map.Entry<PluginDriver, List<DocumentType>>> documentTypeList =
-				documentTypeStream.collect(Collectors.toList());
+			BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
 
-			if (documentTypeList.isEmpty()) {
-				return SearchUtil.EMPTY_SEARCH_REQUEST;
-			}
+			boolQuery.filter(
+				QueryBuilders
+					.termsQuery("datasourceId", queryPlan.getDatasourceIds())
+			);
 
 			Stream.of(
 				tokenTypeGroup
@@ -269,31 +157,16 @@ public class SearchWebSocketHandler implements WebSocketHandler {
 					.map(this::_entityEnrichBoolQuery),
 				this._textEntityQuery(
 					tokenTypeGroup.getOrDefault(
-						"TEXT", Collections.emptyList()), documentTypeList)
+						"TEXT", Collections.emptyList()), queryPlan)
 			)
 				.flatMap(Function.identity())
 				.reduce(Consumer::andThen)
 				.orElse(_DEFAULT_CONSUMER)
 				.accept(boolQuery);
 
-			org.elasticsearch.action.search.SearchRequest elasticSearchQuery;
-
-			if (datasource != null) {
-
-				String[] indexNames = documentTypeList
-					.stream()
-					.map(Map.Entry::getKey)
-					.map(PluginDriver::getName)
-					.distinct()
-					.toArray(String[]::new);
-
-				elasticSearchQuery =
-					factory.createSearchRequestData(tenantId, indexNames);
-			}
-			else {
-				elasticSearchQuery =
-					factory.createSearchRequestData(tenantId, "*");
-			}
+			org.elasticsearch.action.search.SearchRequest elasticSearchQuery =
+				factory.createSearchRequestData(
+					sessionQueryPlan.getTenantId(), queryPlan.getIndexNames());
 
 			SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
 
@@ -301,29 +174,19 @@ public class SearchWebSocketHandler implements WebSocketHandler {
 
 			searchSourceBuilder.query(boolQuery);
 
-			HighlightBuilder highlightBuilder = new HighlightBuilder();
-
-			documentTypeList
-				.stream()
-				.map(Map.Entry::getValue)
-				.flatMap(Collection::stream)
-				.map(DocumentType::getSearchKeywords)
-				.flatMap(Collection::stream)
-				.map(SearchKeyword::getKeyword)
-				.distinct()
-				.forEach(highlightBuilder::field);
-
-			highlightBuilder.forceSource(true);
-
-			highlightBuilder.tagsSchema("default");
+			searchSourceBuilder.fetchSource(
+				Strings.EMPTY_ARRAY, queryPlan.getSourceExcludes());
 
-			searchSourceBuilder.highlighter(highlightBuilder);
+			if (QueryPlan.hasTextValues(tokenTypeGroup.get("TEXT"))) {
+				searchSourceBuilder.highlighter(
+					queryPlan.getHighlightBuilder());
+			}
 
 			if (_log.isDebugEnabled()) {
 				_log.debug(searchSourceBuilder.toString());
 			}
 
-			elasticSearchQuery.scroll(TimeValue.timeValueMinutes(2));
+			elasticSearchQuery.scroll(_scrollSessionManager.getKeepAlive());
 
 			return elasticSearchQuery.source(searchSourceBuilder);
 
@@ -332,18 +195,16 @@ public class SearchWebSocketHandler implements WebSocketHandler {
 	}
 
 	private Stream<Consumer<BoolQueryBuilder>> _textEntityQuery(
-		List<SearchToken> tokenTextList,
-		List<Map.Entry<PluginDriver, List<DocumentType>>> entityMapperList) {
+		List<SearchToken> tokenTextList, QueryPlan queryPlan) {
 
 		return tokenTextList
 			.stream()
 			.map(searchToken -> _termQueryPrefixValues(
-				searchToken.getValues(), entityMapperList));
+				searchToken.getValues(), queryPlan));
 	}
 
 	private Consumer<BoolQueryBuilder> _termQueryPrefixValues(
-		String[] values,
-		List<Map.Entry<PluginDriver, List<DocumentType>>> entityMapperList) {
+		String[] values, QueryPlan queryPlan) {
 
 		return query -> {
 
@@ -352,18 +213,7 @@ public class SearchWebSocketHandler implements WebSocketHandler {
 			}
 
 			Map<String, Float> keywordBoostMap =
-				entityMapperList
-					.stream()
-					.map(Map.Entry::getValue)
-					.flatMap(Collection::stream)
-					.map(DocumentType::getSearchKeywords)
-					.flatMap(Collection::stream)
-					.distinct()
-					.map(SearchKeyword::getFieldBoost)
-					.collect(
-						Collectors.toMap(
-							Map.Entry::getKey, Map.Entry::getValue));
-
+				queryPlan.getKeywordBoostMap();
 
 			for (String value : values) {
 
@@ -380,29 +230,6 @@ public class SearchWebSocketHandler implements WebSocketHandler {
 
 	}
 
-	private Stream<DocumentType> _pluginDriverListToDocumentTypeList(
-		Collection<PluginDriver> pluginDriverList) {
-
-		return pluginDriverList
-			.stream()
-			.flatMap(pd -> {
-
-				List<DocumentType> supportedDocumentTypes =
-					_documentTypeProvider.getDocumentTypeList(
-						pd.getName());
-
-				if (supportedDocumentTypes.isEmpty()) {
-					return Stream.of(
-						_documentTypeProvider.getDefaultDocumentType(
-							pd.getName()));
-				}
-
-				return supportedDocumentTypes.stream();
-
-			});
-
-	}
-
 	private Consumer<BoolQueryBuilder> _entityEnrichBoolQuery(
 		SearchToken searchToken) {
 
@@ -474,13 +301,19 @@ public class SearchWebSocketHandler implements WebSocketHandler {
 	private Search _search;
 
 	@Reference
-	private RestHighLevelClientProvider _restHighLevelClientProvider;
+	private SearchResponseWriter _searchResponseWriter;
+
+	@Reference
+	private ScrollSessionManager _scrollSessionManager;
+
+	@Reference
+	private TenantRepository _tenantRepository;
 
 	@Reference
-	private PluginDriverRegistry _pluginDriverRegistry;
+	private ActiveDatasourceCache _activeDatasourceCache;
 
 	@Reference
-	private DocumentTypeProvider _documentTypeProvider;
+	private QueryPlanCache _queryPlanCache;
 
 	private static final Logger _log = LoggerFactory.getLogger(
 		SearchWebSocketHandler.class);
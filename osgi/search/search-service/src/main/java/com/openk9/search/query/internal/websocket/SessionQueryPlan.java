@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.websocket;
+
+import com.openk9.datasource.util.ActiveDatasources;
+import com.openk9.search.api.query.SearchToken;
+import com.openk9.search.query.internal.plan.QueryPlan;
+import com.openk9.search.query.internal.plan.QueryPlanCache;
+
+import java.util.List;
+import java.util.Objects;
+
+public class SessionQueryPlan {
+
+	SessionQueryPlan(
+		QueryPlanCache queryPlanCache, ActiveDatasources activeDatasources) {
+
+		_queryPlanCache = queryPlanCache;
+		_activeDatasources = activeDatasources;
+	}
+
+	public long getTenantId() {
+		return _activeDatasources.getTenantId();
+	}
+
+	public synchronized QueryPlan getQueryPlan(
+		List<SearchToken> datasourceTokens) {
+
+		if (_queryPlan != null &&
+			Objects.equals(_datasourceTokens, datasourceTokens) &&
+			_queryPlanCache.isCurrent(_queryPlan)) {
+
+			return _queryPlan;
+		}
+
+		_queryPlan = _queryPlanCache.getQueryPlan(
+			_activeDatasources, datasourceTokens);
+
+		_datasourceTokens = datasourceTokens;
+
+		return _queryPlan;
+
+	}
+
+	private final QueryPlanCache _queryPlanCache;
+	private final ActiveDatasources _activeDatasources;
+	private List<SearchToken> _datasourceTokens;
+	private QueryPlan _queryPlan;
+
+}
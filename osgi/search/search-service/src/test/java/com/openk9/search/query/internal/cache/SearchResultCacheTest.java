@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.cache;
+
+import com.openk9.datasource.util.ActiveDatasources;
+import com.openk9.search.api.query.SearchRequest;
+import com.openk9.search.client.api.TenantIndexGeneration;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SearchResultCacheTest {
+
+	@Test
+	public void testHit() throws ReflectiveOperationException {
+
+		SearchResultCache searchResultCache = _searchResultCache(
+			1_000_000, 60_000);
+
+		_get(searchResultCache, 10, 100, true);
+		_get(searchResultCache, 10, 100, true);
+
+		assertEquals(1, _calls.get());
+
+	}
+
+	@Test
+	public void testSkipNotCacheable() throws ReflectiveOperationException {
+
+		SearchResultCache searchResultCache = _searchResultCache(
+			1_000_000, 60_000);
+
+		_get(searchResultCache, 10, 100, false);
+		_get(searchResultCache, 10, 100, false);
+
+		assertEquals(2, _calls.get());
+
+	}
+
+	@Test
+	public void testExpire() throws Exception {
+
+		SearchResultCache searchResultCache = _searchResultCache(
+			1_000_000, 1);
+
+		_get(searchResultCache, 10, 100, true);
+
+		Thread.sleep(10);
+
+		_get(searchResultCache, 10, 100, true);
+
+		assertEquals(2, _calls.get());
+
+	}
+
+	@Test
+	public void testInvalidateOnNewGeneration()
+		throws ReflectiveOperationException {
+
+		SearchResultCache searchResultCache = _searchResultCache(
+			1_000_000, 60_000);
+
+		_get(searchResultCache, 10, 100, true);
+
+		_generation.incrementAndGet();
+
+		_get(searchResultCache, 10, 100, true);
+
+		assertEquals(2, _calls.get());
+
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed()
+		throws ReflectiveOperationException {
+
+		SearchResultCache searchResultCache = _searchResultCache(3_000, 60_000);
+
+		_get(searchResultCache, 10, 1_000, true);
+		_get(searchResultCache, 20, 1_000, true);
+		_get(searchResultCache, 10, 1_000, true);
+		_get(searchResultCache, 30, 1_000, true);
+
+		assertEquals(3, _calls.get());
+
+		_get(searchResultCache, 10, 1_000, true);
+
+		assertEquals(3, _calls.get());
+
+		_get(searchResultCache, 20, 1_000, true);
+
+		assertEquals(4, _calls.get());
+
+	}
+
+	@Test
+	public void testSkipEntryLargerThanCache()
+		throws ReflectiveOperationException {
+
+		SearchResultCache searchResultCache = _searchResultCache(3_000, 60_000);
+
+		_get(searchResultCache, 10, 4_000, true);
+		_get(searchResultCache, 10, 4_000, true);
+
+		assertEquals(2, _calls.get());
+
+	}
+
+	private void _get(
+		SearchResultCache searchResultCache, int size, int valueBytes,
+		boolean cacheable) {
+
+		SearchRequest searchRequest = new SearchRequest();
+
+		searchRequest.setRange(new int[] {0, size});
+
+		searchResultCache
+			.get(
+				ActiveDatasources.of(1, Collections.emptyList()),
+				searchRequest,
+				() -> {
+					_calls.incrementAndGet();
+
+					return Mono.just(
+						Tuples.of(new byte[valueBytes], cacheable));
+				})
+			.block();
+
+	}
+
+	private SearchResultCache _searchResultCache(
+			long maxSizeBytes, long ttlMs)
+		throws ReflectiveOperationException {
+
+		SearchResultCache searchResultCache = new SearchResultCache();
+
+		Field field = SearchResultCache.class.getDeclaredField(
+			"_tenantIndexGeneration");
+
+		field.setAccessible(true);
+
+		field.set(
+			searchResultCache,
+			new TenantIndexGeneration() {
+
+				@Override
+				public long getGeneration(long tenantId) {
+					return _generation.get();
+				}
+
+				@Override
+				public void increment(long tenantId) {
+					_generation.incrementAndGet();
+				}
+
+				@Override
+				public void increment(String indexName) {
+					_generation.incrementAndGet();
+				}
+
+			});
+
+		searchResultCache.activate(
+			new SearchResultCache.Config() {
+
+				@Override
+				public boolean enabled() {
+					return true;
+				}
+
+				@Override
+				public long maxSizeBytes() {
+					return maxSizeBytes;
+				}
+
+				@Override
+				public long ttlMs() {
+					return ttlMs;
+				}
+
+				@Override
+				public Class<? extends Annotation> annotationType() {
+					return SearchResultCache.Config.class;
+				}
+
+			});
+
+		return searchResultCache;
+
+	}
+
+	private final AtomicInteger _calls = new AtomicInteger();
+
+	private final AtomicLong _generation = new AtomicLong();
+
+}
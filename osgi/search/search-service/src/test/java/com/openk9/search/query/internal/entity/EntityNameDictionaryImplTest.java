@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.entity;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EntityNameDictionaryImplTest {
+
+	@Test
+	public void testCountByPrefix() {
+
+		EntityNameDictionaryImpl.TenantDictionary tenantDictionary =
+			_load("Mario Rossi", "Marco Bianchi", "Luigi Verdi", "Mario Rossi");
+
+		assertEquals(2, tenantDictionary.count("mar"));
+		assertEquals(2, tenantDictionary.count("MAR"));
+		assertEquals(1, tenantDictionary.count("mario"));
+		assertEquals(1, tenantDictionary.count("luigi v"));
+		assertEquals(0, tenantDictionary.count("x"));
+		assertEquals(3, tenantDictionary.count(""));
+		assertEquals(3, tenantDictionary.count(null));
+
+	}
+
+	@Test
+	public void testCountAddedNames() {
+
+		EntityNameDictionaryImpl.TenantDictionary tenantDictionary =
+			_load("Mario Rossi", "Luigi Verdi");
+
+		tenantDictionary.add("Maria Neri");
+		tenantDictionary.add("Maria Neri");
+		tenantDictionary.add("Mario Rossi");
+
+		assertEquals(2, tenantDictionary.count("mari"));
+		assertEquals(3, tenantDictionary.count(""));
+
+	}
+
+	@Test
+	public void testCountBeforeLoad() {
+
+		EntityNameDictionaryImpl.TenantDictionary tenantDictionary =
+			new EntityNameDictionaryImpl.TenantDictionary(Mono.never());
+
+		tenantDictionary.add("Mario Rossi");
+
+		assertEquals(1, tenantDictionary.count("mar"));
+		assertEquals(0, tenantDictionary.count("lui"));
+
+	}
+
+	@Test
+	public void testFindByPrefix() {
+
+		EntityNameDictionaryImpl.TenantDictionary tenantDictionary =
+			_load("Mario Rossi", "Marco Bianchi", "Luigi Verdi");
+
+		assertEquals(
+			List.of("Marco Bianchi", "Mario Rossi"),
+			tenantDictionary.find("mar", 0, 10));
+		assertEquals(
+			List.of("Mario Rossi"), tenantDictionary.find("mar", 1, 10));
+		assertEquals(
+			List.of("Marco Bianchi"), tenantDictionary.find("mar", 0, 1));
+
+	}
+
+	private static EntityNameDictionaryImpl.TenantDictionary _load(
+		String... names) {
+
+		return new EntityNameDictionaryImpl.TenantDictionary(
+			Mono.just(new ArrayList<>(List.of(names))))
+			.ready()
+			.block();
+
+	}
+
+}
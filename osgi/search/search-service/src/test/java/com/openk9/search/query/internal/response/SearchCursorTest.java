@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020-present SMC Treviso s.r.l. All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.openk9.search.query.internal.response;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SearchCursorTest {
+
+	@Test
+	public void testRoundTrip() {
+
+		Object[] sortValues = {
+			1.5, "abc", 42, 1_600_000_000_000L, true, null
+		};
+
+		assertArrayEquals(
+			sortValues, SearchCursor.decode(SearchCursor.encode(sortValues)));
+
+	}
+
+	@Test
+	public void testEncodeNothing() {
+		assertNull(SearchCursor.encode(null));
+		assertNull(SearchCursor.encode(new Object[0]));
+	}
+
+	@Test
+	public void testDecodeInvalidCursor() {
+
+		assertThrows(
+			InvalidCursorException.class,
+			() -> SearchCursor.decode("not base64!"));
+
+		assertThrows(
+			InvalidCursorException.class,
+			() -> SearchCursor.decode(_encode("{\"a\":1}")));
+
+		assertThrows(
+			InvalidCursorException.class,
+			() -> SearchCursor.decode(_encode("[1, 2")));
+
+	}
+
+	private static String _encode(String json) {
+		return Base64
+			.getUrlEncoder()
+			.withoutPadding()
+			.encodeToString(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -19,6 +19,7 @@ package com.openk9.http.socket;
 
 import org.reactivestreams.Publisher;
 
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 
 public interface WebSocketSession {
@@ -37,6 +38,8 @@ public interface WebSocketSession {
 
 	String getSessionId();
 
+	InetSocketAddress hostAddress();
+
 	Publisher<Void> close(CloseStatus status);
 
 }
@@ -17,6 +17,7 @@
 
 package com.openk9.http.util;
 
+import com.openk9.http.socket.WebSocketSession;
 import com.openk9.http.web.HttpRequest;
 import reactor.core.publisher.Mono;
 
@@ -30,6 +31,11 @@ public class HttpUtil {
 		return inetSocketAddress.getHostName();
 	}
 
+	public static String getHostName(WebSocketSession webSocketSession) {
+		InetSocketAddress inetSocketAddress = webSocketSession.hostAddress();
+		return inetSocketAddress.getHostName();
+	}
+
 	public static <T> Mono<T> mapBodyRequest(
 		HttpRequest httpRequest, Function<String, T> mapper) {
 
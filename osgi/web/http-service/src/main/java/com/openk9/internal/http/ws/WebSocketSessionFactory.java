@@ -34,6 +34,7 @@ import reactor.core.publisher.Mono;
 import reactor.netty.http.websocket.WebsocketInbound;
 import reactor.netty.http.websocket.WebsocketOutbound;
 
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
@@ -47,9 +48,11 @@ public class WebSocketSessionFactory {
 	private static class WebSocketSessionImpl implements WebSocketSession {
 
 		private WebSocketSessionImpl(
-			WebsocketInbound inbound, WebsocketOutbound outbound) {
+			WebsocketInbound inbound, WebsocketOutbound outbound,
+			InetSocketAddress hostAddress) {
 			_inbound = inbound;
 			_outbound = outbound;
+			_hostAddress = hostAddress;
 			_id = UUID.randomUUID().toString();
 		}
 
@@ -102,6 +105,11 @@ public class WebSocketSessionFactory {
 			return _id;
 		}
 
+		@Override
+		public InetSocketAddress hostAddress() {
+			return _hostAddress;
+		}
+
 		@Override
 		public Mono<Void> close(CloseStatus status) {
 			return _outbound.sendClose(status.getCode(), status.getReason());
@@ -175,6 +183,8 @@ public class WebSocketSessionFactory {
 
 		private final WebsocketOutbound _outbound;
 
+		private final InetSocketAddress _hostAddress;
+
 		private final String _id;
 
 		private static final Map<Class, Function<ByteBuf, WebSocketMessage>>
@@ -198,9 +208,10 @@ public class WebSocketSessionFactory {
 	}
 
 	public static WebSocketSession createWebSocketSession(
-		WebsocketInbound inbound, WebsocketOutbound outbound) {
+		WebsocketInbound inbound, WebsocketOutbound outbound,
+		InetSocketAddress hostAddress) {
 
-		return new WebSocketSessionImpl(inbound, outbound);
+		return new WebSocketSessionImpl(inbound, outbound, hostAddress);
 	}
 
 }
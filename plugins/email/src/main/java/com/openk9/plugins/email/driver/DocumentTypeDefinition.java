@@ -58,7 +58,7 @@ public class DocumentTypeDefinition implements
 						.searchKeywords(
 							List.of(
 								SearchKeyword.text("cc", pluginDriverName),
-								SearchKeyword.text("subject", pluginDriverName),
+								SearchKeyword.suggest("subject", pluginDriverName),
 								SearchKeyword.text("from", pluginDriverName),
 								SearchKeyword.text("to", pluginDriverName),
 								SearchKeyword.text("body", pluginDriverName)
@@ -57,7 +57,7 @@ public class DocumentTypeDefinition implements
 						.searchKeywords(
 							List.of(
 								SearchKeyword.number("userId", "user"),
-								SearchKeyword.boostText("screenName", "user", 5),
+								SearchKeyword.boostSuggest("screenName", "user", 5),
 								SearchKeyword.boostText("emailAddress", "user", 5),
 								SearchKeyword.number("employeeNumber", "user"),
 								SearchKeyword.text("jobTitle", "user"),
@@ -66,9 +66,9 @@ public class DocumentTypeDefinition implements
 								SearchKeyword.text("twitterSn", "user"),
 								SearchKeyword.text("skypeSn", "user"),
 								SearchKeyword.text("facebookSn", "user"),
-								SearchKeyword.boostText("firstName", "user", 5),
+								SearchKeyword.boostSuggest("firstName", "user", 5),
 								SearchKeyword.boostText("middleName", "user", 5),
-								SearchKeyword.boostText("lastName", "user", 5),
+								SearchKeyword.boostSuggest("lastName", "user", 5),
 								SearchKeyword.number("birthday", "user")
 							)
 						)
@@ -105,7 +105,7 @@ public class DocumentTypeDefinition implements
 								SearchKeyword.number("calendarBookingId", "calendar"),
 								SearchKeyword.text("description", "calendar"),
 								SearchKeyword.text("location", "calendar"),
-								SearchKeyword.text("title", "calendar"),
+								SearchKeyword.suggest("title", "calendar"),
 								SearchKeyword.text("titleCurrentValue", "calendar"),
 								SearchKeyword.number("startTime", "calendar"),
 								SearchKeyword.number("endTime", "calendar"),
@@ -154,7 +154,7 @@ public class DocumentTypeDefinition implements
 						.searchKeywords(
 							List.of(
 								SearchKeyword.text("content", "document"),
-								SearchKeyword.text("title", "document")
+								SearchKeyword.suggest("title", "document")
 							)
 						)
 						.sourceFields(
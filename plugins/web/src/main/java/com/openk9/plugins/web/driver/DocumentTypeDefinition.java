@@ -55,7 +55,7 @@ public class DocumentTypeDefinition implements
 						.name(pluginDriverName)
 						.searchKeywords(
 							List.of(
-								SearchKeyword.text("title", pluginDriverName),
+								SearchKeyword.suggest("title", pluginDriverName),
 								SearchKeyword.text("content", pluginDriverName)
 							)
 						)
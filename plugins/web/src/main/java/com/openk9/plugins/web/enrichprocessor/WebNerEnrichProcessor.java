@@ -18,6 +18,7 @@
 package com.openk9.plugins.web.enrichprocessor;
 
 import com.openk9.json.api.JsonFactory;
+import com.openk9.search.client.api.EntityNameDictionary;
 import com.openk9.search.client.api.Index;
 import com.openk9.http.client.HttpClientFactory;
 import com.openk9.http.web.HttpHandler;
@@ -51,6 +52,7 @@ public class WebNerEnrichProcessor extends BaseNerEnrichProcessor {
 		setEntityMapperProvider(_entityMapperProvider);
 		setIndex(_index);
 		setSearch(_search);
+		setEntityNameDictionary(_entityNameDictionary);
 		setJsonFactory(_jsonFactory);
 	}
 
@@ -96,6 +98,9 @@ public class WebNerEnrichProcessor extends BaseNerEnrichProcessor {
 	@Reference
 	private Index _index;
 
+	@Reference
+	private EntityNameDictionary _entityNameDictionary;
+
 	@Reference
 	private EntityMapperProvider _entityMapperProvider;
 